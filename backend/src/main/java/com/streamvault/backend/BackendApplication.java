@@ -1,11 +1,15 @@
 package com.streamvault.backend;
 
+import com.streamvault.backend.config.RateLimitProperties;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication(exclude = {
 		org.springframework.ai.vectorstore.redis.autoconfigure.RedisVectorStoreAutoConfiguration.class
 })
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class BackendApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,4 @@
+package com.streamvault.backend.cache;
+
+public record SegmentKey(long fileId, long index) {
+}
@@ -0,0 +1,9 @@
+package com.streamvault.backend.cache;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface SegmentLoader {
+
+    byte[] load(long offset, int length) throws IOException;
+}
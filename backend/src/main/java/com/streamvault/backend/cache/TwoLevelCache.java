@@ -0,0 +1,189 @@
+package com.streamvault.backend.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.streamvault.backend.util.SingleFlight;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} with a per-instance Caffeine near cache in
+ * front of Redis. Reads try the near cache, then Redis, then the loader. Evictions delete the
+ * Redis entry and are broadcast on the invalidation channel so other instances drop their near
+ * copy. When Redis is unavailable the cache degrades to the near cache alone.
+ * <p>
+ * Cached values are shared between callers and must be treated as read-only.
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    static final String KEY_PREFIX = "cache:";
+    static final String CLEAR_ALL = "*";
+
+    private final String name;
+    private final Class<?> type;
+    private final Duration ttl;
+    private final Cache<String, Object> local;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final InvalidationPublisher publisher;
+    private final SingleFlight<String, Object> loads = new SingleFlight<>();
+
+    // Sends "name:key" (or "name:*") to the other instances
+    @FunctionalInterface
+    interface InvalidationPublisher {
+        void publish(String cacheName, String key);
+    }
+
+    TwoLevelCache(String name, Class<?> type, Duration ttl, Cache<String, Object> local,
+                  StringRedisTemplate redisTemplate, ObjectMapper objectMapper, InvalidationPublisher publisher) {
+        super(false);
+        this.name = name;
+        this.type = type;
+        this.ttl = ttl;
+        this.local = local;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String k = key.toString();
+        Object value = local.getIfPresent(k);
+        if (value != null) {
+            return value;
+        }
+        value = readRemote(k);
+        if (value != null) {
+            local.put(k, value);
+        }
+        return value;
+    }
+
+    // Used by @Cacheable(sync = true): concurrent misses for one key on this instance share one load.
+    // The load runs outside the near cache's compute lock, so Redis and JDBC calls never pin a virtual thread.
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String k = key.toString();
+        Object cached = local.getIfPresent(k);
+        if (cached != null) {
+            return (T) cached;
+        }
+        return (T) loads.load(k, () -> {
+            Object value = local.getIfPresent(k);
+            if (value != null) {
+                return value;
+            }
+            value = readRemote(k);
+            if (value == null) {
+                try {
+                    value = valueLoader.call();
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+                if (value != null) {
+                    writeRemote(k, value);
+                }
+            }
+            if (value != null) {
+                local.put(k, value);
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        String k = key.toString();
+        local.put(k, value);
+        writeRemote(k, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String k = key.toString();
+        local.invalidate(k);
+        try {
+            redisTemplate.delete(redisKey(k));
+            publisher.publish(name, k);
+        } catch (RuntimeException e) {
+            log.warn("[cache] Could not evict {}:{} from Redis: {}", name, k, e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear() {
+        local.invalidateAll();
+        try {
+            List<String> keys = new ArrayList<>();
+            ScanOptions options = ScanOptions.scanOptions().match(redisKey(CLEAR_ALL)).count(500).build();
+            try (Cursor<String> cursor = redisTemplate.scan(options)) {
+                cursor.forEachRemaining(keys::add);
+            }
+            if (!keys.isEmpty()) {
+                redisTemplate.delete(keys);
+            }
+            publisher.publish(name, CLEAR_ALL);
+        } catch (RuntimeException e) {
+            log.warn("[cache] Could not clear {} in Redis: {}", name, e.getMessage());
+        }
+    }
+
+    // Applies an invalidation received from another instance; Redis was already updated by the sender
+    void invalidateLocal(String key) {
+        if (CLEAR_ALL.equals(key)) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    private Object readRemote(String key) {
+        try {
+            String json = redisTemplate.opsForValue().get(redisKey(key));
+            return json != null ? objectMapper.readValue(json, type) : null;
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("[cache] Could not read {}:{} from Redis: {}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRemote(String key, Object value) {
+        try {
+            redisTemplate.opsForValue().set(redisKey(key), objectMapper.writeValueAsString(value), ttl);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("[cache] Could not write {}:{} to Redis: {}", name, key, e.getMessage());
+        }
+    }
+
+    private String redisKey(String key) {
+        return KEY_PREFIX + name + ":" + key;
+    }
+}
@@ -0,0 +1,73 @@
+package com.streamvault.backend.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Creates the {@link TwoLevelCache}s and relays invalidations between instances over Redis
+ * pub/sub. Messages are {@code instanceId:cacheName:key}; an instance ignores its own.
+ * Pub/sub is fire-and-forget, so near-cache entries also expire after {@code localTtl}
+ * to bound staleness when a message is missed.
+ */
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager {
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private final long localMaxSize;
+    private final Duration localTtl;
+    private final Map<String, TwoLevelCache> caches = new LinkedHashMap<>();
+
+    public TwoLevelCacheManager(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, String channel,
+                                long localMaxSize, Duration localTtl) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = localTtl;
+    }
+
+    public TwoLevelCacheManager withCache(String name, Class<?> type, Duration ttl) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(ttl.compareTo(localTtl) < 0 ? ttl : localTtl)
+                .build();
+        caches.put(name, new TwoLevelCache(name, type, ttl, local, redisTemplate, objectMapper, this::publish));
+        return this;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return caches.values();
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void onInvalidation(String message) {
+        String[] parts = message.split(":", 3);
+        if (parts.length != 3 || parts[0].equals(instanceId)) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.invalidateLocal(parts[2]);
+        }
+    }
+
+    private void publish(String cacheName, String key) {
+        redisTemplate.convertAndSend(channel, instanceId + ":" + cacheName + ":" + key);
+    }
+}
@@ -0,0 +1,214 @@
+package com.streamvault.backend.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.streamvault.backend.dto.ByteRange;
+import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.util.SingleFlight;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-through cache of fixed-size file segments keyed by (fileId, segment index).
+ * The memory tier holds direct buffers under a W-TinyLFU policy; segments it evicts
+ * are spilled to an optional disk tier and served from there via memory-mapped files.
+ * Stored files are immutable, so entries never need invalidation.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VideoSegmentCache {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${streaming.segment-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${streaming.segment-cache.segment-size:1MB}")
+    private DataSize segmentSize;
+
+    @Value("${streaming.segment-cache.memory-capacity:256MB}")
+    private DataSize memoryCapacity;
+
+    @Value("${streaming.segment-cache.disk.enabled:false}")
+    private boolean diskEnabled;
+
+    @Value("${streaming.segment-cache.disk.path:${java.io.tmpdir}/streamvault-segments}")
+    private Path diskPath;
+
+    @Value("${streaming.segment-cache.disk.capacity:4GB}")
+    private DataSize diskCapacity;
+
+    private Cache<SegmentKey, ByteBuffer> memory;
+    private Cache<SegmentKey, DiskSegment> disk;
+    // Origin fetches run outside Caffeine's compute lock so they never pin a virtual thread
+    private final SingleFlight<SegmentKey, ByteBuffer> loads = new SingleFlight<>();
+    private Counter originFetches;
+    private Counter originBytes;
+
+    private record DiskSegment(Path path, MappedByteBuffer buffer) {
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            log.info("[segmentCache] Disabled, streaming directly from MinIO");
+            return;
+        }
+
+        if (diskEnabled) {
+            // Spilled segments are not tracked across restarts
+            FileSystemUtils.deleteRecursively(diskPath);
+            Files.createDirectories(diskPath);
+
+            disk = Caffeine.newBuilder()
+                    .maximumWeight(diskCapacity.toBytes())
+                    .weigher((SegmentKey key, DiskSegment segment) -> segment.buffer().capacity())
+                    .removalListener((SegmentKey key, DiskSegment segment, RemovalCause cause) -> deleteQuietly(segment))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, disk, "video.segments.disk");
+        }
+
+        memory = Caffeine.newBuilder()
+                .maximumWeight(memoryCapacity.toBytes())
+                .weigher((SegmentKey key, ByteBuffer buffer) -> buffer.capacity())
+                .evictionListener((SegmentKey key, ByteBuffer buffer, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && disk != null) {
+                        spill(key, buffer);
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "video.segments.memory");
+
+        originFetches = meterRegistry.counter("video.segments.origin.fetches");
+        originBytes = meterRegistry.counter("video.segments.origin.bytes");
+
+        log.info("[segmentCache] Enabled with segmentSize={}, memoryCapacity={}, disk={}",
+                segmentSize, memoryCapacity, diskEnabled ? diskPath + " (" + diskCapacity + ")" : "off");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes {@code range} of {@code file} to {@code out}, assembling it from cached
+     * segments and loading only the missing ones through {@code origin}.
+     */
+    public void writeRange(FileEntity file, ByteRange range, OutputStream out, SegmentLoader origin) throws IOException {
+        long size = segmentSize.toBytes();
+        byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+
+        long position = range.start();
+        while (position <= range.end()) {
+            long index = position / size;
+            ByteBuffer segment = getSegment(file, index, origin).duplicate();
+
+            int from = (int) (position - index * size);
+            int to = (int) Math.min(segment.limit(), range.end() - index * size + 1);
+            if (to <= from) {
+                // A segment ending before the requested position would never advance it
+                throw new EOFException("Segment " + index + " of file " + file.getId() + " ends at byte "
+                        + segment.limit() + ", before position " + position);
+            }
+            segment.limit(to).position(from);
+
+            while (segment.hasRemaining()) {
+                int n = Math.min(copyBuffer.length, segment.remaining());
+                segment.get(copyBuffer, 0, n);
+                out.write(copyBuffer, 0, n);
+            }
+            position += to - from;
+        }
+        out.flush();
+    }
+
+    private ByteBuffer getSegment(FileEntity file, long index, SegmentLoader origin) throws IOException {
+        SegmentKey key = new SegmentKey(file.getId(), index);
+
+        ByteBuffer cached = memory.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (disk != null) {
+            DiskSegment spilled = disk.getIfPresent(key);
+            if (spilled != null) {
+                return spilled.buffer();
+            }
+        }
+
+        return loads.load(key, () -> {
+            ByteBuffer loaded = memory.getIfPresent(key);
+            if (loaded == null) {
+                loaded = load(file, key, origin);
+                memory.put(key, loaded);
+            }
+            return loaded;
+        });
+    }
+
+    private ByteBuffer load(FileEntity file, SegmentKey key, SegmentLoader origin) throws IOException {
+        long size = segmentSize.toBytes();
+        long offset = key.index() * size;
+        int length = (int) Math.min(size, file.getSize() - offset);
+
+        byte[] data = origin.load(offset, length);
+        originFetches.increment();
+        originBytes.increment(data.length);
+        if (data.length != length) {
+            // Not cached, so the next request fetches the segment again instead of serving it truncated
+            throw new EOFException("Segment " + key.index() + " of file " + key.fileId() + ": expected "
+                    + length + " bytes, origin returned " + data.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private void spill(SegmentKey key, ByteBuffer buffer) {
+        Path path = diskPath.resolve(key.fileId() + "_" + key.index() + ".seg");
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(buffer.duplicate().rewind());
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, buffer.capacity());
+            disk.put(key, new DiskSegment(path, mapped));
+        } catch (IOException e) {
+            log.warn("[segmentCache] Failed to spill segment {} to disk: {}", key, e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(DiskSegment segment) {
+        try {
+            Files.deleteIfExists(segment.path());
+        } catch (IOException e) {
+            log.warn("[segmentCache] Failed to delete spilled segment {}: {}", segment.path(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.streamvault.backend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.streamvault.backend.cache.TwoLevelCacheManager;
+import com.streamvault.backend.dto.VideoListPage;
+import com.streamvault.backend.model.VideoEntity;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+@ConditionalOnProperty(name = "cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheConfig {
+
+    public static final String VIDEOS = "videos";
+    public static final String VIDEO_PAGES = "video-pages";
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(StringRedisTemplate stringRedisTemplate, ObjectMapper objectMapper,
+                                             @Value("${cache.invalidation-channel:cache-invalidation}") String channel,
+                                             @Value("${cache.local-max-size:10000}") long localMaxSize,
+                                             @Value("${cache.local-ttl:1m}") Duration localTtl,
+                                             @Value("${cache.videos.ttl:10m}") Duration videosTtl,
+                                             @Value("${cache.video-pages.ttl:30s}") Duration videoPagesTtl) {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(stringRedisTemplate, objectMapper, channel,
+                localMaxSize, localTtl)
+                .withCache(VIDEOS, VideoEntity.class, videosTtl)
+                .withCache(VIDEO_PAGES, VideoListPage.class, videoPagesTtl);
+        // Evictions made inside a transaction are applied after it commits
+        manager.setTransactionAware(true);
+        return manager;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   TwoLevelCacheManager cacheManager,
+                                                                   @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (virtualThreads) {
+            container.setTaskExecutor(new VirtualThreadTaskExecutor("cache-invalidation-"));
+        }
+        container.addMessageListener(
+                (message, pattern) -> cacheManager.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(cacheManager.getChannel()));
+        return container;
+    }
+}
@@ -0,0 +1,56 @@
+package com.streamvault.backend.config;
+
+import com.streamvault.backend.kafka.UploadCompletedEvent;
+import com.streamvault.backend.kafka.UploadCompletedEventSerde;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaConfig {
+
+    public static final String UPLOAD_COMPLETED_TOPIC = "file-upload-completed";
+
+    // Merge work is spread over partitions, so this caps how many consumers can merge in parallel
+    @Bean
+    public NewTopic uploadTopic(@Value("${upload.events.partitions:6}") int partitions,
+                                @Value("${upload.events.replicas:1}") short replicas) {
+        return TopicBuilder.name(UPLOAD_COMPLETED_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .build();
+    }
+
+    /**
+     * Typed events use their binary serde. Raw bytes pass through unchanged, which is how the
+     * dead-letter publisher forwards records that failed to deserialize.
+     */
+    @Bean
+    public ProducerFactory<String, Object> producerFactory(KafkaProperties kafkaProperties) {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(UploadCompletedEvent.class, new UploadCompletedEventSerde());
+        serializers.put(byte[].class, new ByteArraySerializer());
+
+        return new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(), new DelegatingByTypeSerializer(serializers));
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+}
@@ -1,17 +1,29 @@
 package com.streamvault.backend.config;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import io.minio.MakeBucketArgs;
 import io.minio.BucketExistsArgs;
 import io.minio.SetBucketLifecycleArgs;
+import io.minio.http.HttpUtils;
 import io.minio.messages.*;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Configuration
@@ -32,7 +44,19 @@ public class MinioConfig {
     @Value("${minio.chunk-bucket}")
     private String chunkBucket;
 
+    @Value("${minio.http.max-concurrent-requests:256}")
+    private int maxConcurrentRequests;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Async streams read bodies on a small pump pool, so a stalled body must give its thread back soon
+    @Value("${streaming.async.read-timeout:15s}")
+    private Duration asyncReadTimeout;
+
     private static final Duration OBJECT_TTL = Duration.ofHours(24);
+    private static final long HTTP_TIMEOUT_MS = Duration.ofMinutes(5).toMillis();
+    private static final Duration IDLE_CONNECTION_TTL = Duration.ofMinutes(5);
 
     @Bean
     public MinioClient minioClient() {
@@ -40,6 +64,7 @@ public class MinioConfig {
             MinioClient client = MinioClient.builder()
                     .endpoint(endpoint)
                     .credentials(accessKey, secretKey)
+                    .httpClient(httpClient(maxConcurrentRequests, virtualThreads))
                     .build();
 
             createBucketIfNotExists(client, fileBucket);
@@ -51,6 +76,53 @@ public class MinioConfig {
         }
     }
 
+    // Buckets are created by minioClient()
+    @Bean
+    @ConditionalOnProperty(name = "streaming.async.enabled", havingValue = "true")
+    public MinioAsyncClient minioAsyncClient() {
+        return MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(httpClient(maxConcurrentRequests, virtualThreads, asyncReadTimeout.toMillis()))
+                .build();
+    }
+
+    /**
+     * MinioClient runs every blocking call as an OkHttp async call and waits on the future, so the
+     * dispatcher decides how many requests reach MinIO at once. OkHttp allows 5 per host and keeps
+     * 5 idle connections by default, which caps concurrent streams per instance no matter how many
+     * request threads there are. With virtual threads the dispatcher runs calls on virtual threads
+     * too; OkHttp's own synchronized sections only guard bookkeeping, never socket I/O.
+     */
+    public static OkHttpClient httpClient(int maxConcurrentRequests, boolean virtualThreads) {
+        return httpClient(maxConcurrentRequests, virtualThreads, HTTP_TIMEOUT_MS);
+    }
+
+    public static OkHttpClient httpClient(int maxConcurrentRequests, boolean virtualThreads, long readTimeoutMs) {
+        Dispatcher dispatcher = new Dispatcher(dispatcherExecutor(virtualThreads));
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+
+        return HttpUtils.newDefaultHttpClient(HTTP_TIMEOUT_MS, HTTP_TIMEOUT_MS, readTimeoutMs)
+                .newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxConcurrentRequests, IDLE_CONNECTION_TTL.toMinutes(), TimeUnit.MINUTES))
+                .build();
+    }
+
+    private static ExecutorService dispatcherExecutor(boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("minio-http-", 1).factory());
+        }
+        // Same shape as OkHttp's default executor, with daemon threads
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "minio-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     private void createBucketIfNotExists(MinioClient client, String bucketName) throws Exception {
         boolean exists = client.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
         if (!exists) {
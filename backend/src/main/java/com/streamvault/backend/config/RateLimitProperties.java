@@ -0,0 +1,43 @@
+package com.streamvault.backend.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // How often locally admitted requests are reported to Redis
+    private Duration syncInterval = Duration.ofSeconds(1);
+
+    // Bounds the local tier: per-client buckets are evicted past this size or once idle
+    private long maxClients = 100_000;
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    // Checked in order, first match wins; requests matching none use defaultRoute
+    private List<Route> routes = new ArrayList<>();
+    private Route defaultRoute = new Route("default", "/**", 10, Duration.ofSeconds(10));
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Route {
+        private String name;
+        private String pattern;
+        // Requests allowed per window, per client
+        private int capacity;
+        private Duration window;
+    }
+}
@@ -0,0 +1,61 @@
+package com.streamvault.backend.config;
+
+import com.streamvault.backend.search.HashingEmbeddingModel;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore.MetadataField;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import redis.clients.jedis.JedisPooled;
+
+/**
+ * Redis vector index for semantic search. Needs Redis with the search and JSON modules
+ * (redis-stack), which is why it is behind {@code search.semantic.enabled}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "search.semantic.enabled", havingValue = "true")
+public class SemanticSearchConfig {
+
+    public static final String INDEX_NAME = "video-embeddings";
+    public static final String KEY_PREFIX = "video-embedding:";
+
+    @Bean
+    @ConditionalOnMissingBean(EmbeddingModel.class)
+    public EmbeddingModel embeddingModel(@Value("${search.semantic.dimensions:384}") int dimensions) {
+        return new HashingEmbeddingModel(dimensions);
+    }
+
+    @Bean(destroyMethod = "close")
+    public JedisPooled vectorStoreJedis(@Value("${spring.data.redis.host}") String host,
+                                        @Value("${spring.data.redis.port}") int port,
+                                        @Value("${spring.data.redis.password:}") String password) {
+        if (password.isEmpty()) {
+            return new JedisPooled(host, port);
+        }
+        return new JedisPooled(host, port, null, password);
+    }
+
+    @Bean
+    public RedisVectorStore videoVectorStore(JedisPooled vectorStoreJedis, EmbeddingModel embeddingModel) {
+        return vectorStoreBuilder(vectorStoreJedis, embeddingModel)
+                .indexName(INDEX_NAME)
+                .prefix(KEY_PREFIX)
+                .build();
+    }
+
+    // Shared with the vector benchmark so it measures the production index layout
+    public static RedisVectorStore.Builder vectorStoreBuilder(JedisPooled jedis, EmbeddingModel embeddingModel) {
+        return RedisVectorStore.builder(jedis, embeddingModel)
+                .vectorAlgorithm(RedisVectorStore.Algorithm.HSNW)
+                .metadataFields(
+                        MetadataField.tag("readyForStreaming"),
+                        MetadataField.numeric("durationSeconds"),
+                        MetadataField.numeric("height"))
+                .initializeSchema(true);
+    }
+}
@@ -1,7 +1,10 @@
 package com.streamvault.backend.controller;
 
+import com.streamvault.backend.dto.DirectUploadResponse;
 import com.streamvault.backend.dto.FileUploadResponse;
+import com.streamvault.backend.dto.UploadInitResponse;
 import com.streamvault.backend.kafka.FileUploadProducer;
+import com.streamvault.backend.model.FileEntity;
 import com.streamvault.backend.service.ChunkUploadService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +13,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+import java.util.Optional;
+
 @Slf4j
 @RestController
 @RequestMapping("api/upload")
@@ -19,11 +25,61 @@ public class ChunkUploadController {
     private final ChunkUploadService chunkService;
     private final FileUploadProducer fileUploadProducer;
 
+    // Without a hash the response is the bare uploadId; with one it is an UploadInitResponse
     @PostMapping("/init")
-    public ResponseEntity<String> initialiseUpload() {
-        String uploadId = chunkService.initialiseUpload();
-        log.info("[POST /api/upload/init] Initialized upload with uploadId={}", uploadId);
-        return ResponseEntity.ok(uploadId);
+    public ResponseEntity<?> initialiseUpload(@RequestParam(value = "hash", required = false) String hash) {
+        if (hash == null) {
+            String uploadId = chunkService.initialiseUpload();
+            log.info("[POST /api/upload/init] Initialized upload with uploadId={}", uploadId);
+            return ResponseEntity.ok(uploadId);
+        }
+
+        try {
+            UploadInitResponse response = chunkService.initialiseUpload(hash);
+            log.info("[POST /api/upload/init] Initialized upload with uploadId={}, existingFileId={}, inFlightUploadId={}",
+                    response.uploadId(), response.existingFileId(), response.inFlightUploadId());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("[POST /api/upload/init] Invalid hash={}: {}", hash, e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/init/direct")
+    public ResponseEntity<?> initialiseDirectUpload(@RequestParam("chunkCount") int chunkCount) {
+        if (chunkCount <= 0 || chunkCount > ChunkUploadService.MAX_CHUNKS) {
+            log.warn("[POST /api/upload/init/direct] Invalid chunkCount={}", chunkCount);
+            return ResponseEntity.badRequest().body("Invalid chunk count");
+        }
+
+        try {
+            DirectUploadResponse response = chunkService.initialiseDirectUpload(chunkCount);
+            log.info("[POST /api/upload/init/direct] Initialized direct upload with uploadId={}, chunks={}",
+                    response.uploadId(), chunkCount);
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            log.warn("[POST /api/upload/init/direct] {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/presign")
+    public ResponseEntity<?> presignChunks(
+            @RequestParam("uploadId") String uploadId,
+            @RequestParam("chunkNumbers") List<Integer> chunkNumbers) {
+
+        if (chunkNumbers.isEmpty() || chunkNumbers.size() > ChunkUploadService.MAX_CHUNKS
+                || chunkNumbers.stream().anyMatch(n -> n <= 0 || n > ChunkUploadService.MAX_CHUNKS)) {
+            log.warn("[POST /api/upload/presign] Invalid chunkNumbers for uploadId={}", uploadId);
+            return ResponseEntity.badRequest().body("Invalid chunk numbers");
+        }
+
+        try {
+            return ResponseEntity.ok(chunkService.presignChunks(uploadId, chunkNumbers));
+        } catch (IllegalStateException e) {
+            log.warn("[POST /api/upload/presign] Cannot presign for uploadId={}: {}", uploadId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
 
     @PostMapping("/chunk")
@@ -39,7 +95,7 @@ public class ChunkUploadController {
                 log.warn("[POST /api/upload/chunk] No file provided for uploadId={}", uploadId);
                 return ResponseEntity.badRequest().body("No file provided");
             }
-            if (chunkNumber <= 0) {
+            if (chunkNumber <= 0 || chunkNumber > ChunkUploadService.MAX_CHUNKS) {
                 log.warn("[POST /api/upload/chunk] Invalid chunkNumber={} for uploadId={}", chunkNumber, uploadId);
                 return ResponseEntity.badRequest().body("Invalid chunk number");
             }
@@ -69,7 +125,15 @@ public class ChunkUploadController {
         log.info("[POST /api/upload/complete] Completing upload for uploadId={}, fileName={}", uploadId, fileName);
 
         try {
-            chunkService.completeUpload(uploadId, fileName);
+            Optional<FileEntity> existing = chunkService.completeUpload(uploadId, fileName);
+            if (existing.isPresent()) {
+                FileEntity file = existing.get();
+                log.info("[POST /api/upload/complete] uploadId={} duplicates file id={}", uploadId, file.getId());
+                return ResponseEntity.ok(new FileUploadResponse(
+                        file.getId(), file.getFileName(), file.getFileType(), file.getSize(), file.getHash(),
+                        "File already exists"
+                ));
+            }
 
             log.info("[POST /api/upload/complete] Upload request queued successfully for uploadId={}", uploadId);
 
@@ -77,6 +141,10 @@ public class ChunkUploadController {
                     null, fileName, null, 0, null,
                     "Upload request received — processing asynchronously"
             ));
+        } catch (IllegalArgumentException e) {
+            log.warn("[POST /api/upload/complete] Rejected uploadId={}: {}", uploadId, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(new FileUploadResponse(null, fileName, null, 0, null, e.getMessage()));
         } catch (Exception e) {
             log.error("[POST /api/upload/complete] Failed to queue upload for uploadId={}, fileName={}: {}", uploadId, fileName, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -85,4 +153,20 @@ public class ChunkUploadController {
         }
     }
 
+    @PostMapping("/cancel")
+    public ResponseEntity<String> cancelUpload(@RequestParam("uploadId") String uploadId) {
+        log.info("[POST /api/upload/cancel] Cancelling upload for uploadId={}", uploadId);
+
+        try {
+            chunkService.cancelUpload(uploadId);
+            return ResponseEntity.ok("Upload " + uploadId + " cancelled");
+        } catch (IllegalStateException e) {
+            log.warn("[POST /api/upload/cancel] Cannot cancel uploadId={}: {}", uploadId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("[POST /api/upload/cancel] Failed to cancel uploadId={}: {}", uploadId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to cancel upload: " + e.getMessage());
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.streamvault.backend.controller;
 import com.streamvault.backend.dto.FileUploadResponse;
 import com.streamvault.backend.dto.UploadStatusResponse;
 import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.model.TranscodeJob;
 import com.streamvault.backend.model.UploadStatus;
 import com.streamvault.backend.service.ChunkUploadService;
 import com.streamvault.backend.service.FileService;
@@ -61,25 +62,39 @@ public class FileController {
     }
 
     @GetMapping("/status")
-    public ResponseEntity<UploadStatusResponse> getUploadStatus(@RequestParam("uploadId") String uploadId) {
+    public ResponseEntity<UploadStatusResponse> getUploadStatus(
+            @RequestParam("uploadId") String uploadId,
+            @RequestParam(value = "totalChunks", required = false) Integer totalChunks) {
         log.info("[GET /api/files/status] Checking upload status for uploadId={}", uploadId);
+        if (totalChunks != null && (totalChunks <= 0 || totalChunks > ChunkUploadService.MAX_CHUNKS)) {
+            log.warn("[GET /api/files/status] Invalid totalChunks={} for uploadId={}", totalChunks, uploadId);
+            return ResponseEntity.badRequest().build();
+        }
 
         try {
             UploadStatus status = chunkUploadService.getUploadStatus(uploadId);
             List<Integer> uploadedChunks = chunkUploadService.getUploadedChunks(uploadId);
+            List<Integer> missingChunks = totalChunks != null
+                    ? chunkUploadService.getMissingChunks(uploadId, totalChunks)
+                    : null;
+            Double transcodeProgress = chunkUploadService.getTranscodeJob(uploadId)
+                    .map(TranscodeJob::getProgress)
+                    .orElse(null);
             log.info("[GET /api/files/status] Retrieved status for uploadId={}: {}", uploadId, status.getStatus());
             return ResponseEntity.ok(
                     new UploadStatusResponse(
                             uploadId,
                             status.getStatus(),
                             status.getFileName(),
-                            uploadedChunks
+                            uploadedChunks,
+                            missingChunks,
+                            transcodeProgress
                     )
             );
         } catch (Exception e) {
             log.error("[GET /api/files/status] Failed to retrieve upload status for uploadId={}: {}", uploadId, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new UploadStatusResponse(uploadId, null, null, null));
+                    .body(new UploadStatusResponse(uploadId, null, null, null, null, null));
         }
     }
 }
@@ -1,19 +1,36 @@
 package com.streamvault.backend.controller;
 
 import com.streamvault.backend.dto.StreamedFile;
+import com.streamvault.backend.dto.VideoListPage;
 import com.streamvault.backend.dto.VideoProcessedRequest;
 import com.streamvault.backend.dto.VideoResponse;
+import com.streamvault.backend.exception.RangeNotSatisfiableException;
 import com.streamvault.backend.model.FileEntity;
 import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.search.SearchMode;
+import com.streamvault.backend.search.SearchResult;
+import com.streamvault.backend.search.VideoDocument;
+import com.streamvault.backend.search.VideoSearchCriteria;
+import com.streamvault.backend.service.AsyncVideoStreamer;
 import com.streamvault.backend.service.FileService;
 import com.streamvault.backend.service.VideoService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/videos")
@@ -23,18 +40,31 @@ public class VideoController {
 
     private final VideoService videoService;
     private final FileService fileService;
+    // Present only when streaming.async.enabled=true
+    private final ObjectProvider<AsyncVideoStreamer> asyncStreamer;
+
+    // Rendition directories and segment names written by the ladder; also rules out path traversal
+    private static final Pattern HLS_NAME = Pattern.compile("[A-Za-z0-9_-]+(\\.[A-Za-z0-9]+)?");
 
     @GetMapping
-    public ResponseEntity<Page<VideoResponse>> listVideos(
-            @RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<Slice<VideoResponse>> listVideos(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean readyForStreaming,
             @RequestParam(defaultValue = "10") int size) {
 
-        PageRequest pageable = PageRequest.of(page, size);
-        Page<VideoResponse> videoPage = videoService
-                .listVideos(pageable)
-                .map(this::toResponse);
+        VideoListPage videos;
+        try {
+            videos = videoService.listVideos(cursor, readyForStreaming, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        return ResponseEntity.ok(videoPage);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (videos.nextCursor() != null) {
+            response.header("X-Next-Cursor", videos.nextCursor());
+        }
+        List<VideoResponse> content = videos.videos().stream().map(this::toResponse).toList();
+        return response.body(new SliceImpl<>(content, PageRequest.ofSize(size), videos.hasNext()));
     }
 
     @GetMapping("/{id}")
@@ -51,6 +81,20 @@ public class VideoController {
                 .thumbnailPath(video.getThumbnailPath())
                 .durationSeconds(video.getDurationSeconds())
                 .readyForStreaming(video.getReadyForStreaming())
+                .hlsUrl(video.getHlsPath() != null ? "/api/videos/" + video.getId() + "/hls/master.m3u8" : null)
+                .build();
+    }
+
+    private VideoResponse toResponse(VideoDocument doc) {
+        Long id = Long.valueOf(doc.getId());
+        return VideoResponse.builder()
+                .id(id)
+                .title(doc.getTitle())
+                .description(doc.getDescription())
+                .thumbnailPath(doc.getThumbnailPath())
+                .durationSeconds(doc.getDurationSeconds())
+                .readyForStreaming(Boolean.TRUE.equals(doc.getReadyForStreaming()))
+                .hlsUrl(doc.getHlsPath() != null ? "/api/videos/" + id + "/hls/master.m3u8" : null)
                 .build();
     }
 
@@ -64,36 +108,90 @@ public class VideoController {
     }
 
     @GetMapping("/stream/{id}")
-    public ResponseEntity<byte[]> streamVideo(
+    public ResponseEntity<StreamingResponseBody> streamVideo(
             @PathVariable Long id,
-            @RequestHeader(value = "Range", required = false) String rangeHeader) {
+            @RequestHeader(value = "Range", required = false) String rangeHeader,
+            HttpServletRequest request,
+            HttpServletResponse response) {
         try {
             VideoEntity video = videoService.getVideo(id);
             FileEntity file = video.getFile();
 
+            // The async streamer writes the response itself; a null entity tells MVC it is handled
+            AsyncVideoStreamer streamer = asyncStreamer.getIfAvailable();
+            if (streamer != null && streamer.stream(file, rangeHeader, request, response)) {
+                return null;
+            }
+
             StreamedFile streamed = fileService.streamFile(file, rangeHeader);
 
             HttpHeaders headers = new HttpHeaders();
             headers.add("Content-Type", streamed.contentType());
             headers.add("Accept-Ranges", "bytes");
-            headers.add("Content-Length", String.valueOf(streamed.data().length));
-            headers.add(
-                "Content-Range",
-                "bytes %d-%d/%d".formatted(
-                    streamed.start(), streamed.end(), streamed.totalSize()
-                )
-            );
+            headers.add("Content-Length", String.valueOf(streamed.contentLength()));
+            if (streamed.partial() && !streamed.multipart()) {
+                headers.add("Content-Range", streamed.contentRange());
+            }
 
             return ResponseEntity
                     .status(streamed.partial() ? 206 : 200)
                     .headers(headers)
-                    .body(streamed.data());
+                    .body(streamed.body());
 
+        } catch (RangeNotSatisfiableException e) {
+            log.info("Unsatisfiable range for videoId={}: {}", id, e.getMessage());
+            return ResponseEntity.status(416)
+                    .header("Content-Range", "bytes */" + e.getTotalSize())
+                    .build();
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    @GetMapping("/{id}/hls/master.m3u8")
+    public ResponseEntity<StreamingResponseBody> hlsMasterPlaylist(@PathVariable Long id) {
+        VideoEntity video = videoService.getVideo(id);
+        if (video.getHlsPath() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // Rewritten as each rendition of the ladder is stored, so only cache it briefly
+        return serveHlsObject(video.getHlsPath(), "public, max-age=10");
+    }
+
+    @GetMapping("/{id}/hls/{rendition}/{file}")
+    public ResponseEntity<StreamingResponseBody> hlsRenditionFile(
+            @PathVariable Long id,
+            @PathVariable String rendition,
+            @PathVariable String file) {
+
+        VideoEntity video = videoService.getVideo(id);
+        if (video.getHlsPath() == null
+                || !HLS_NAME.matcher(rendition).matches()
+                || !HLS_NAME.matcher(file).matches()) {
+            return ResponseEntity.notFound().build();
+        }
+        String prefix = video.getHlsPath().substring(0, video.getHlsPath().lastIndexOf('/') + 1);
+        // Rendition playlists and segments never change once written
+        return serveHlsObject(prefix + rendition + "/" + file, "public, max-age=31536000, immutable");
+    }
+
+    private ResponseEntity<StreamingResponseBody> serveHlsObject(String objectName, String cacheControl) {
+        try {
+            StreamedFile streamed = fileService.streamObject(objectName);
+            return ResponseEntity.ok()
+                    .header("Content-Type", streamed.contentType())
+                    .header("Content-Length", String.valueOf(streamed.contentLength()))
+                    .header("Cache-Control", cacheControl)
+                    .body(streamed.body());
+
+        } catch (FileNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            log.error("Failed to serve HLS object {}: {}", objectName, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<VideoResponse> updateVideo(
             @PathVariable Long id,
@@ -103,16 +201,50 @@ public class VideoController {
         return ResponseEntity.ok(toResponse(updated));
     }
 
+    @PostMapping("/reindex")
+    public ResponseEntity<Void> reindexAll() {
+        if (!videoService.reindexAll()) {
+            return ResponseEntity.status(409).build();
+        }
+        log.info("Full search reindex started");
+        return ResponseEntity.accepted().build();
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Page<VideoResponse>> searchVideos(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean hydrate,
+            @RequestParam(required = false) Boolean readyForStreaming,
+            @RequestParam(required = false) Long minDuration,
+            @RequestParam(required = false) Long maxDuration,
+            @RequestParam(required = false) Integer minHeight,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "keyword") String mode) {
 
         PageRequest pageable = PageRequest.of(page, size);
 
-        Page<VideoEntity> results = videoService.searchVideos(query, pageable);
+        // By default results come straight from the index; hydrate=true loads the entities from Postgres
+        SearchResult<VideoResponse> results;
+        try {
+            VideoSearchCriteria criteria = new VideoSearchCriteria(
+                    query, readyForStreaming, minDuration, maxDuration, minHeight, cursor, SearchMode.parse(mode));
+            results = hydrate
+                    ? videoService.searchVideos(criteria, pageable).map(this::toResponse)
+                    : videoService.searchVideoDocuments(criteria, pageable).map(this::toResponse);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.warn("Search failed for cursor request: {}", e.getMessage());
+            return ResponseEntity.status(503).build();
+        }
 
-        return ResponseEntity.ok(results.map(this::toResponse));
+        // Pass the cursor back instead of a page number to page deeply with search_after
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (results.nextCursor() != null) {
+            response.header("X-Next-Cursor", results.nextCursor());
+        }
+        return response.body(results.page());
     }
 }
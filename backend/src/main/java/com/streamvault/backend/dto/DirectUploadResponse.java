@@ -0,0 +1,15 @@
+package com.streamvault.backend.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Presigned PUT URL per chunk number. The client uploads each chunk body to its URL and then
+ * calls {@code /api/upload/complete} as usual.
+ */
+public record DirectUploadResponse(
+        String uploadId,
+        Map<Integer, String> chunkUrls,
+        Instant expiresAt
+) {
+}
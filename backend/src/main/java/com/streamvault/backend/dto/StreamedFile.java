@@ -1,10 +1,24 @@
 package com.streamvault.backend.dto;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
 public record StreamedFile(
-    byte[] data,
-    long start,
-    long end,
+    StreamingResponseBody body,
+    List<ByteRange> ranges,
     long totalSize,
+    long contentLength,
     String contentType,
     boolean partial
-) {}
+) {
+    public boolean multipart() {
+        return ranges.size() > 1;
+    }
+
+    // Only meaningful for a single-range response; multipart parts carry their own Content-Range.
+    public String contentRange() {
+        ByteRange range = ranges.get(0);
+        return "bytes %d-%d/%d".formatted(range.start(), range.end(), totalSize);
+    }
+}
@@ -0,0 +1,18 @@
+package com.streamvault.backend.dto;
+
+/**
+ * Result of initialising an upload with a declared content hash:
+ * <ul>
+ *   <li>{@code existingFileId}: the content is already stored, nothing needs to be uploaded</li>
+ *   <li>{@code inFlightUploadId}: another upload of the same content is in progress; the client
+ *       can poll it, or upload under {@code uploadId} anyway</li>
+ *   <li>neither: upload the chunks under {@code uploadId}</li>
+ * </ul>
+ */
+public record UploadInitResponse(
+        String uploadId,
+        Long existingFileId,
+        String inFlightUploadId,
+        String message
+) {
+}
@@ -13,4 +13,7 @@ public class UploadStatusResponse {
     private Status status;
     private String fileName;
     private List<Integer> uploadedChunks;
+    // Only filled when the caller passes the total chunk count
+    private List<Integer> missingChunks;
+    private Double transcodeProgress;
 }
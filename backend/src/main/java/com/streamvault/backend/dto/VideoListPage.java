@@ -0,0 +1,15 @@
+package com.streamvault.backend.dto;
+
+import com.streamvault.backend.model.VideoEntity;
+
+import java.util.List;
+
+/**
+ * One keyset page of the video listing. {@code nextCursor} is null on the last page.
+ */
+public record VideoListPage(
+        List<VideoEntity> videos,
+        boolean hasNext,
+        String nextCursor
+) {
+}
@@ -13,4 +13,5 @@ public class VideoResponse {
     private String thumbnailPath;
     private boolean readyForStreaming;
     private Long durationSeconds;
+    private String hlsUrl;
 }
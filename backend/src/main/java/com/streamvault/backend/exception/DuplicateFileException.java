@@ -0,0 +1,15 @@
+package com.streamvault.backend.exception;
+
+import lombok.Getter;
+
+// The merged upload matches a stored file; retrying the merge cannot succeed
+@Getter
+public class DuplicateFileException extends RuntimeException {
+
+    private final String hash;
+
+    public DuplicateFileException(String hash) {
+        super("File already exists with hash: " + hash);
+        this.hash = hash;
+    }
+}
@@ -0,0 +1,17 @@
+package com.streamvault.backend.exception;
+
+import lombok.Getter;
+
+// The merged bytes do not hash to what the client declared at init; retrying cannot change that
+@Getter
+public class HashMismatchException extends RuntimeException {
+
+    private final String declaredHash;
+    private final String actualHash;
+
+    public HashMismatchException(String declaredHash, String actualHash) {
+        super("Upload hashes to " + actualHash + " but " + declaredHash + " was declared");
+        this.declaredHash = declaredHash;
+        this.actualHash = actualHash;
+    }
+}
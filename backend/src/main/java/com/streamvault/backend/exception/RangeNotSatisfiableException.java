@@ -0,0 +1,14 @@
+package com.streamvault.backend.exception;
+
+import lombok.Getter;
+
+@Getter
+public class RangeNotSatisfiableException extends RuntimeException {
+
+    private final long totalSize;
+
+    public RangeNotSatisfiableException(String message, long totalSize) {
+        super(message);
+        this.totalSize = totalSize;
+    }
+}
@@ -1,26 +1,61 @@
 package com.streamvault.backend.kafka;
 
+import com.streamvault.backend.config.KafkaConfig;
+import com.streamvault.backend.exception.HashMismatchException;
 import com.streamvault.backend.service.ChunkUploadService;
+
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
 
+/**
+ * Merges completed uploads. Failed merges are retried through delayed retry topics, so a slow
+ * retry never blocks the partition, and land in the dead-letter topic once attempts run out.
+ * Hash mismatches and records that cannot be deserialized go straight to the dead-letter topic.
+ * The upload stays PROCESSING while it is retried and is marked FAILED only from the dead-letter
+ * handler. A duplicate is a normal outcome of the merge and never fails the record.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileUploadConsumer {
 
     private final ChunkUploadService chunkUploadService;
 
-    @KafkaListener(topics = "file-upload-completed")
-    public void consumeUpload(String message) {
-        String[] parts = message.split("\\|");
-        String uploadId = parts[0];
-        String fileName = parts[1];
+    @RetryableTopic(
+            attempts = "${upload.events.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${upload.events.retry.delay-ms:2000}",
+                    multiplierExpression = "${upload.events.retry.multiplier:3}",
+                    maxDelayExpression = "${upload.events.retry.max-delay-ms:60000}"),
+            numPartitions = "${upload.events.partitions:6}",
+            replicationFactor = "${upload.events.replicas:1}",
+            kafkaTemplate = "kafkaTemplate",
+            exclude = HashMismatchException.class,
+            traversingCauses = "true",
+            dltStrategy = DltStrategy.FAIL_ON_ERROR)
+    @KafkaListener(topics = KafkaConfig.UPLOAD_COMPLETED_TOPIC,
+            concurrency = "${upload.events.consumer-concurrency:3}")
+    public void consumeUpload(UploadCompletedEvent event) throws Exception {
+        log.info("[uploadEvents] Merging uploadId={}", event.uploadId());
+        chunkUploadService.mergeChunksAndSaveFile(event.uploadId(), event.fileName());
+    }
 
-        try {
-            chunkUploadService.mergeChunksAndSaveFile(uploadId, fileName);
-        } catch (Exception e) {
-            e.printStackTrace();
+    @DltHandler
+    public void onDeadLetter(ConsumerRecord<String, ?> record,
+                             @Header(name = KafkaHeaders.EXCEPTION_MESSAGE, required = false) String error) {
+        log.error("[uploadEvents] Giving up on uploadId={} from {}: {}", record.key(), record.topic(), error);
+        if (record.key() != null) {
+            chunkUploadService.failUpload(record.key());
         }
     }
 }
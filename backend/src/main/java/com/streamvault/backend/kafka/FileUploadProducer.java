@@ -1,16 +1,30 @@
 package com.streamvault.backend.kafka;
 
+import com.streamvault.backend.config.KafkaConfig;
+
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileUploadProducer {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
 
     public void sendUploadCompleted(String uploadId, String fileName) {
-        kafkaTemplate.send("file-upload-completed", uploadId + "|" + fileName);
+        UploadCompletedEvent event = new UploadCompletedEvent(uploadId, fileName, System.currentTimeMillis());
+
+        // Keyed by uploadId, so all events of one upload stay ordered on one partition
+        kafkaTemplate.send(KafkaConfig.UPLOAD_COMPLETED_TOPIC, uploadId, event)
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        log.error("[uploadEvents] Failed to publish upload completed for uploadId={}: {}",
+                                uploadId, e.getMessage());
+                    }
+                });
     }
 }
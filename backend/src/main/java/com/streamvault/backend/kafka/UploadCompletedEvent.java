@@ -0,0 +1,12 @@
+package com.streamvault.backend.kafka;
+
+/**
+ * Published once all chunks of an upload are stored, keyed by uploadId so every event of an
+ * upload lands on the same partition. Serialized by {@link UploadCompletedEventSerde}.
+ */
+public record UploadCompletedEvent(
+        String uploadId,
+        String fileName,
+        long completedAtMillis
+) {
+}
@@ -0,0 +1,76 @@
+package com.streamvault.backend.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@link UploadCompletedEvent}:
+ * <pre>
+ * version:byte | uploadId:(int length, UTF-8) | fileName:(int length, UTF-8) | completedAtMillis:long
+ * </pre>
+ * New fields are appended under a new version byte; readers reject versions they do not know.
+ */
+public class UploadCompletedEventSerde implements Serializer<UploadCompletedEvent>, Deserializer<UploadCompletedEvent> {
+
+    static final byte VERSION = 1;
+
+    @Override
+    public byte[] serialize(String topic, UploadCompletedEvent event) {
+        if (event == null) {
+            return null;
+        }
+        byte[] uploadId = event.uploadId().getBytes(StandardCharsets.UTF_8);
+        byte[] fileName = event.fileName().getBytes(StandardCharsets.UTF_8);
+
+        return ByteBuffer.allocate(1 + 4 + uploadId.length + 4 + fileName.length + 8)
+                .put(VERSION)
+                .putInt(uploadId.length).put(uploadId)
+                .putInt(fileName.length).put(fileName)
+                .putLong(event.completedAtMillis())
+                .array();
+    }
+
+    @Override
+    public UploadCompletedEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new SerializationException("Unsupported UploadCompletedEvent version " + version);
+            }
+            String uploadId = readString(buffer);
+            String fileName = readString(buffer);
+            return new UploadCompletedEvent(uploadId, fileName, buffer.getLong());
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Malformed UploadCompletedEvent of " + data.length + " bytes", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Both interfaces declare these as defaults, so they have to be resolved here
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
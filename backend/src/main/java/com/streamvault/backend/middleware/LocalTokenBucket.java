@@ -0,0 +1,77 @@
+package com.streamvault.backend.middleware;
+
+import com.streamvault.backend.config.RateLimitProperties;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token bucket kept in process memory. It is implemented as GCRA: the whole
+ * state is one theoretical arrival time advanced with CAS, so concurrent requests from
+ * the same client never take a lock. Admitted requests are counted until the next
+ * Redis sync drains them.
+ */
+final class LocalTokenBucket {
+
+    private final RateLimitProperties.Route route;
+    private final String client;
+    private final long windowNanos;
+    private final long intervalNanos;
+    private final AtomicLong arrival;
+    private final LongAdder pending = new LongAdder();
+
+    LocalTokenBucket(RateLimitProperties.Route route, String client, long nowNanos) {
+        this.route = route;
+        this.client = client;
+        this.windowNanos = route.getWindow().toNanos();
+        this.intervalNanos = Math.max(1, windowNanos / Math.max(1, route.getCapacity()));
+        this.arrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return tokens left after this request, or -1 if the bucket is empty
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            if (next - nowNanos > windowNanos) {
+                return -1;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                pending.increment();
+                return (windowNanos - (next - nowNanos)) / intervalNanos;
+            }
+        }
+    }
+
+    // Time until the next token is available
+    long nanosUntilNextToken(long nowNanos) {
+        return Math.max(0, arrival.get() + intervalNanos - windowNanos - nowNanos);
+    }
+
+    // Applies the cluster-wide verdict: no tokens until the excess requests have drained
+    void penalize(long excessRequests, long nowNanos) {
+        long blockNanos = Math.min(windowNanos, excessRequests * intervalNanos);
+        long blockedArrival = nowNanos + blockNanos + windowNanos - intervalNanos;
+        arrival.accumulateAndGet(blockedArrival, Math::max);
+    }
+
+    long drainPending() {
+        return pending.sumThenReset();
+    }
+
+    boolean hasPending() {
+        return pending.sum() > 0;
+    }
+
+    RateLimitProperties.Route route() {
+        return route;
+    }
+
+    String client() {
+        return client;
+    }
+}
@@ -1,5 +1,11 @@
 package com.streamvault.backend.middleware;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.streamvault.backend.config.RateLimitProperties;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,65 +14,191 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Set;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-tier rate limiter. Every request is decided by a local per-client token bucket,
+ * without touching Redis. A background task reports the admitted counts to Redis in
+ * batches, one Lua script call per batch, and clients over their cluster-wide limit
+ * get their local bucket emptied until the excess drains.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class RateLimiterFilter extends OncePerRequestFilter {
 
-    private final RedisTemplate<String, Object> redisTemplate;
-    private static final int MAX_REQUESTS = 10;
-    private static final Duration WINDOW = Duration.ofSeconds(10);
     private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final String KEY_PREFIX = "rate:";
+    private static final int SYNC_BATCH_SIZE = 500;
+
+    // Sliding-window counter: adds this node's requests to the current fixed window and
+    // returns the estimate current + previous * (share of the previous window still in range).
+    // KEYS come in (current, previous) pairs; ARGV in (count, windowMs, elapsedMs) triples.
+    private static final RedisScript<List> SYNC_SCRIPT = new DefaultRedisScript<>("""
+            local result = {}
+            for i = 1, #KEYS, 2 do
+              local j = (i - 1) / 2 * 3
+              local count = tonumber(ARGV[j + 1])
+              local window = tonumber(ARGV[j + 2])
+              local elapsed = tonumber(ARGV[j + 3])
+              local current = redis.call('INCRBY', KEYS[i], count)
+              if current == count then
+                redis.call('PEXPIRE', KEYS[i], window * 2)
+              end
+              local previous = tonumber(redis.call('GET', KEYS[i + 1]) or '0')
+              result[#result + 1] = current + math.floor(previous * (window - elapsed) / window)
+            end
+            return result
+            """, List.class);
 
-    @Override
-    protected void doFilterInternal(HttpServletRequest request,HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RateLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private Cache<String, LocalTokenBucket> buckets;
+    private ScheduledExecutorService syncExecutor;
+
+    @PostConstruct
+    void start() {
+        buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rate-limit-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = properties.getSyncInterval().toMillis();
+        syncExecutor.scheduleWithFixedDelay(this::syncSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
 
-        String clientIp = getClientIp(request);
-        log.info("RateLimiter: Request from IP={}", clientIp);
+    @PreDestroy
+    void stop() {
+        syncExecutor.shutdownNow();
+    }
 
-        String key = "rate:" + clientIp;
-        long now = Instant.now().toEpochMilli();
-        long windowStart = now - WINDOW.toMillis();
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled();
+    }
 
-        // Remove old timestamps outside the window
-        redisTemplate.opsForZSet().removeRangeByScore(key, 0, windowStart);
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
 
-        Long count = redisTemplate.opsForZSet().zCard(key);
+        String clientIp = getClientIp(request);
+        RateLimitProperties.Route route = resolveRoute(request.getRequestURI());
+        long now = System.nanoTime();
 
-        if (count != null && count >= MAX_REQUESTS) {
+        LocalTokenBucket bucket = buckets.get(route.getName() + ":" + clientIp,
+                key -> new LocalTokenBucket(route, clientIp, now));
+        long remaining = bucket.tryAcquire(now);
 
-            Set<Object> oldest = redisTemplate.opsForZSet().range(key, 0, 0);
-            long reset = now;
-            if (oldest != null && !oldest.isEmpty()) {
-                reset = ((Long) oldest.iterator().next()).longValue() + WINDOW.toMillis();
-            }
+        if (remaining < 0) {
+            long resetSeconds = TimeUnit.NANOSECONDS.toSeconds(bucket.nanosUntilNextToken(now) + 999_999_999);
+            log.debug("RateLimiter: Rejected IP={} on route={}", clientIp, route.getName());
 
             response.setStatus(SC_TOO_MANY_REQUESTS);
             response.setHeader("X-RateLimit-Remaining", "0");
-            response.setHeader("X-RateLimit-Reset", String.valueOf((reset - now) / 1000));
+            response.setHeader("X-RateLimit-Reset", String.valueOf(resetSeconds));
             response.getWriter().write("Rate limit exceeded. Try again later.");
             return;
         }
 
-        // Add current request timestamp
-        redisTemplate.opsForZSet().add(key, now, now);
-        redisTemplate.expire(key, WINDOW);
-
-        long remaining = MAX_REQUESTS - (count != null ? count : 0);
+        log.debug("RateLimiter: Request from IP={} on route={}, remaining={}", clientIp, route.getName(), remaining);
         response.setHeader("X-RateLimit-Remaining", String.valueOf(remaining));
-        response.setHeader("X-RateLimit-Reset", String.valueOf(WINDOW.toSeconds()));
+        response.setHeader("X-RateLimit-Reset", String.valueOf(route.getWindow().toSeconds()));
 
         filterChain.doFilter(request, response);
     }
 
+    private RateLimitProperties.Route resolveRoute(String path) {
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            if (pathMatcher.match(route.getPattern(), path)) {
+                return route;
+            }
+        }
+        return properties.getDefaultRoute();
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (Exception e) {
+            // Redis being unavailable leaves the local limits in force
+            log.warn("RateLimiter: Redis sync failed: {}", e.getMessage());
+        }
+    }
+
+    void sync() {
+        List<LocalTokenBucket> dirty = buckets.asMap().values().stream()
+                .filter(LocalTokenBucket::hasPending)
+                .toList();
+
+        for (int from = 0; from < dirty.size(); from += SYNC_BATCH_SIZE) {
+            syncBatch(dirty.subList(from, Math.min(dirty.size(), from + SYNC_BATCH_SIZE)));
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void syncBatch(List<LocalTokenBucket> batch) {
+        long nowMillis = System.currentTimeMillis();
+        List<LocalTokenBucket> synced = new ArrayList<>(batch.size());
+        List<String> keys = new ArrayList<>(batch.size() * 2);
+        List<String> args = new ArrayList<>(batch.size() * 3);
+
+        for (LocalTokenBucket bucket : batch) {
+            long count = bucket.drainPending();
+            if (count == 0) {
+                continue;
+            }
+            long windowMs = bucket.route().getWindow().toMillis();
+            long windowIndex = nowMillis / windowMs;
+            String prefix = KEY_PREFIX + bucket.route().getName() + ":" + bucket.client() + ":";
+
+            synced.add(bucket);
+            keys.add(prefix + windowIndex);
+            keys.add(prefix + (windowIndex - 1));
+            args.add(String.valueOf(count));
+            args.add(String.valueOf(windowMs));
+            args.add(String.valueOf(nowMillis % windowMs));
+        }
+        if (synced.isEmpty()) {
+            return;
+        }
+
+        List<Long> totals = redisTemplate.execute(SYNC_SCRIPT, RedisSerializer.string(),
+                (RedisSerializer) RedisSerializer.string(), keys, args.toArray());
+        if (totals == null || totals.size() != synced.size()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        for (int i = 0; i < synced.size(); i++) {
+            LocalTokenBucket bucket = synced.get(i);
+            long excess = totals.get(i) - bucket.route().getCapacity();
+            if (excess > 0) {
+                bucket.penalize(excess, now);
+                log.debug("RateLimiter: IP={} over cluster limit on route={} by {}",
+                        bucket.client(), bucket.route().getName(), excess);
+            }
+        }
+        log.debug("RateLimiter: Synced {} buckets to Redis", synced.size());
+    }
+
     private String getClientIp(HttpServletRequest request) {
         String xfHeader = request.getHeader("X-Forwarded-For");
         if (xfHeader != null && !xfHeader.isEmpty()) {
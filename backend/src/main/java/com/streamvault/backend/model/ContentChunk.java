@@ -0,0 +1,27 @@
+package com.streamvault.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A deduplicated chunk, stored once in MinIO under its SHA-256. {@code refCount} counts the
+ * manifest entries pointing at it across all files.
+ */
+@Entity
+@Table(name = "content_chunks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentChunk {
+
+    @Id
+    private String hash;
+
+    private long size;
+    private long refCount;
+    private LocalDateTime createdAt;
+}
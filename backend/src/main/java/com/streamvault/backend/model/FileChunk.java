@@ -0,0 +1,28 @@
+package com.streamvault.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One entry of a chunked file's manifest: bytes {@code [fileOffset, fileOffset + size)} of the
+ * file are the content chunk {@code chunkHash}.
+ */
+@Entity
+@Table(name = "file_chunks", indexes = @Index(name = "idx_file_chunks_file_position", columnList = "fileId, position"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long fileId;
+    private int position;
+    private long fileOffset;
+    private long size;
+    private String chunkHash;
+}
@@ -6,13 +6,16 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "files")
+@Table(name = "files", indexes = @Index(name = FileEntity.HASH_INDEX, columnList = "hash", unique = true))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class FileEntity {
 
+    // One row per content hash; an insert that conflicts on it is a duplicate upload
+    public static final String HASH_INDEX = "idx_files_hash";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -34,8 +37,19 @@ public class FileEntity {
     @Enumerated(EnumType.STRING)
     private FileCategory category;
 
+    // Null for files stored before chunked storage existed, which are single objects
+    @Enumerated(EnumType.STRING)
+    private StorageLayout storageLayout;
+
     public enum FileCategory {
         FILE,
         VIDEO
     }
+
+    public enum StorageLayout {
+        // One object at minioPath
+        OBJECT,
+        // Deduplicated content chunks listed in file_chunks
+        CHUNKED
+    }
 }
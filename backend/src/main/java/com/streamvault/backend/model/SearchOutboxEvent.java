@@ -0,0 +1,33 @@
+package com.streamvault.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A pending search index update, written in the same transaction as the video change.
+ * Rows are drained by the search indexer and deleted once the index reflects them.
+ * A row that ran out of attempts keeps its last error and has no next attempt.
+ */
+@Entity
+@Table(name = "search_outbox", indexes = @Index(name = "idx_search_outbox_next_attempt", columnList = "nextAttemptAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long videoId;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+
+    private int attempts;
+    private String lastError;
+}
@@ -0,0 +1,71 @@
+package com.streamvault.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "transcode_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TranscodeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Type type;
+
+    private String uploadId;
+    private Long videoId;
+    private String fileName;
+    private String hash;
+
+    // Merged upload on the local disk of the node that ran the merge; null for ladder jobs
+    private String inputPath;
+    private Long sizeBytes;
+
+    @Enumerated(EnumType.STRING)
+    private Lane lane;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private Double progress;
+    private String error;
+
+    // Instance that runs the job and the last time it confirmed so. Only written on insert and by
+    // the repository's lease updates, so saving a stale copy of the job cannot roll the lease back
+    @Column(updatable = false)
+    private String owner;
+
+    @Column(updatable = false)
+    private LocalDateTime heartbeatAt;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public enum Type {
+        UPLOAD,
+        HLS_LADDER
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+
+    public enum Lane {
+        SMALL,
+        LARGE
+    }
+}
@@ -21,10 +21,32 @@ public class UploadStatus {
     @Enumerated(EnumType.STRING)
     private Status status;
 
+    // Last merge stage committed for this upload; a redelivered merge resumes after it
+    @Enumerated(EnumType.STRING)
+    private MergeStage mergeStage;
+
+    private String hash;
+    // SHA-256 the client declared at init; the merge fails if the bytes hash differently
+    private String declaredHash;
+    private Long fileId;
+    private Long videoId;
+
     public enum Status {
         INITIATED,
         PROCESSING,
+        TRANSCODE_QUEUED,
+        TRANSCODING,
         COMPLETED,
-        FAILED
+        FAILED,
+        CANCELLED,
+        DUPLICATE
+    }
+
+    // Declared in order; stages are compared by ordinal
+    public enum MergeStage {
+        DOWNLOADED,
+        MERGED,
+        STORED,
+        INDEXED
     }
 }
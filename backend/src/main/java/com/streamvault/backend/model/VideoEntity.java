@@ -26,6 +26,9 @@ public class VideoEntity {
     private String description;
 
     private String thumbnailPath;
+
+    // MinIO object name of the HLS master playlist, set once the lowest rendition is stored
+    private String hlsPath;
     private Long durationSeconds;
     private Integer width;
     private Integer height;
@@ -0,0 +1,20 @@
+package com.streamvault.backend.repository;
+
+import com.streamvault.backend.model.ContentChunk;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ContentChunkRepository extends JpaRepository<ContentChunk, String> {
+
+    // Insert-or-increment in one statement, so concurrent uploads of the same chunk cannot lose a reference
+    @Modifying
+    @Query(value = """
+            insert into content_chunks (hash, size, ref_count, created_at)
+            values (:hash, :size, 1, now())
+            on conflict (hash) do update set ref_count = content_chunks.ref_count + 1
+            """, nativeQuery = true)
+    void addReference(@Param("hash") String hash, @Param("size") long size);
+}
@@ -0,0 +1,11 @@
+package com.streamvault.backend.repository;
+
+import com.streamvault.backend.model.FileChunk;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface FileChunkRepository extends JpaRepository<FileChunk, Long> {
+    List<FileChunk> findByFileIdOrderByPosition(Long fileId);
+}
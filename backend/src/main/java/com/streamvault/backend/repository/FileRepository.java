@@ -1,10 +1,21 @@
 package com.streamvault.backend.repository;
 
 import com.streamvault.backend.model.FileEntity;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface FileRepository extends JpaRepository<FileEntity, Long> {
     Optional<FileEntity> findByHash(String hash);
+
+    // Streamed with a cursor so loading the hash filter does not hold every hash in memory; needs a transaction
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select f.hash from FileEntity f where f.hash is not null")
+    Stream<String> streamHashes();
 }
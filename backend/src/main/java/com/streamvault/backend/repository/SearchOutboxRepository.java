@@ -0,0 +1,23 @@
+package com.streamvault.backend.repository;
+
+import com.streamvault.backend.model.SearchOutboxEvent;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SearchOutboxRepository extends JpaRepository<SearchOutboxEvent, Long> {
+
+    // Rows locked by another indexer instance are skipped rather than waited on
+    @Query(value = """
+            select * from search_outbox
+            where next_attempt_at <= :now
+            order by id
+            limit :limit
+            for update skip locked
+            """, nativeQuery = true)
+    List<SearchOutboxEvent> claimBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
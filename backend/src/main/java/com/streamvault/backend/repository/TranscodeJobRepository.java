@@ -0,0 +1,39 @@
+package com.streamvault.backend.repository;
+
+import com.streamvault.backend.model.TranscodeJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface TranscodeJobRepository extends JpaRepository<TranscodeJob, Long> {
+    Optional<TranscodeJob> findFirstByUploadIdAndTypeOrderByIdDesc(String uploadId, TranscodeJob.Type type);
+
+    List<TranscodeJob> findByStatusInAndOwnerOrderById(Collection<TranscodeJob.Status> statuses, String owner);
+
+    @Query("select j from TranscodeJob j where j.status in :statuses"
+            + " and (j.heartbeatAt is null or j.heartbeatAt < :expiredBefore) order by j.id")
+    List<TranscodeJob> findExpired(@Param("statuses") Collection<TranscodeJob.Status> statuses,
+                                   @Param("expiredBefore") LocalDateTime expiredBefore);
+
+    @Modifying
+    @Transactional
+    @Query("update TranscodeJob j set j.heartbeatAt = :now where j.owner = :owner and j.status in :statuses")
+    int renewLeases(@Param("owner") String owner, @Param("now") LocalDateTime now,
+                    @Param("statuses") Collection<TranscodeJob.Status> statuses);
+
+    // Re-checks expiry in the update itself, so of several instances racing for a job only one gets it
+    @Modifying
+    @Transactional
+    @Query("update TranscodeJob j set j.owner = :owner, j.heartbeatAt = :now where j.id = :id"
+            + " and j.status in :statuses and (j.heartbeatAt is null or j.heartbeatAt < :expiredBefore)")
+    int takeOver(@Param("id") Long id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                 @Param("expiredBefore") LocalDateTime expiredBefore,
+                 @Param("statuses") Collection<TranscodeJob.Status> statuses);
+}
@@ -1,10 +1,27 @@
 package com.streamvault.backend.repository;
 
 import com.streamvault.backend.model.UploadStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface UploadStatusRepository extends JpaRepository<UploadStatus, Long> {
     Optional<UploadStatus> findByUploadId(String uploadId);
+
+    // Serializes merge checkpoints of one upload across consumers
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from UploadStatus u where u.uploadId = :uploadId")
+    Optional<UploadStatus> findForUpdate(@Param("uploadId") String uploadId);
+
+    // Touches only the status column, so it cannot overwrite checkpoint fields with a stale copy
+    @Modifying
+    @Transactional
+    @Query("update UploadStatus u set u.status = :status where u.uploadId = :uploadId")
+    int updateStatus(@Param("uploadId") String uploadId, @Param("status") UploadStatus.Status status);
 }
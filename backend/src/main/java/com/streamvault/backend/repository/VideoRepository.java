@@ -2,11 +2,54 @@ package com.streamvault.backend.repository;
 
 import com.streamvault.backend.model.VideoEntity;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface VideoRepository extends JpaRepository<VideoEntity, Long> {
-    Page<VideoEntity> findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-        String title, String description, Pageable pageable);
+
+    // Must match the expression of idx_videos_fulltext in schema.sql for the GIN index to be used
+    String FULL_TEXT_VECTOR = "to_tsvector('simple', coalesce(v.title, '') || ' ' || coalesce(v.description, ''))";
+
+    String FULL_TEXT_WHERE = " where " + FULL_TEXT_VECTOR + " @@ to_tsquery('simple', :tsquery)"
+            + " and (cast(:ready as boolean) is null or v.ready_for_streaming = cast(:ready as boolean))"
+            + " and (cast(:minDuration as bigint) is null or v.duration_seconds >= cast(:minDuration as bigint))"
+            + " and (cast(:maxDuration as bigint) is null or v.duration_seconds <= cast(:maxDuration as bigint))"
+            + " and (cast(:minHeight as integer) is null or v.height >= cast(:minHeight as integer))";
+
+    // Database fallback for search when Elasticsearch is unavailable
+    @Query(value = "select v.* from videos v" + FULL_TEXT_WHERE
+            + " order by ts_rank(" + FULL_TEXT_VECTOR + ", to_tsquery('simple', :tsquery)) desc, v.id",
+            countQuery = "select count(*) from videos v" + FULL_TEXT_WHERE,
+            nativeQuery = true)
+    Page<VideoEntity> fullTextSearch(@Param("tsquery") String tsquery,
+                                     @Param("ready") Boolean readyForStreaming,
+                                     @Param("minDuration") Long minDurationSeconds,
+                                     @Param("maxDuration") Long maxDurationSeconds,
+                                     @Param("minHeight") Integer minHeight,
+                                     Pageable pageable);
+
+    // Loads a page of search hits and their files in one query
+    @Query("select v from VideoEntity v left join fetch v.file where v.id in :ids")
+    List<VideoEntity> findAllWithFileByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset pages for the video listing, newest first. Slice fetches size + 1 rows instead of counting;
+    // the filtered variant is served by idx_videos_ready_id in schema.sql
+    @EntityGraph(attributePaths = "file")
+    Slice<VideoEntity> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "file")
+    Slice<VideoEntity> findByReadyForStreamingAndIdLessThanOrderByIdDesc(Boolean readyForStreaming, Long id, Pageable pageable);
+
+    // Keyset page for full reindexing
+    @EntityGraph(attributePaths = "file")
+    List<VideoEntity> findByIdGreaterThanOrderById(Long id, Limit limit);
 }
@@ -0,0 +1,102 @@
+package com.streamvault.backend.search;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Default local embedding model: words and character trigrams hashed into a fixed number
+ * of dimensions, then L2-normalised. It needs no model files or network and is fast enough
+ * to embed on the indexer thread, but only captures lexical similarity (shared words,
+ * stems, typos). Declaring any other {@link EmbeddingModel} bean replaces it.
+ */
+public class HashingEmbeddingModel implements EmbeddingModel {
+
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    public HashingEmbeddingModel(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalStateException("Embedding dimensions must be positive");
+        }
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> inputs = request.getInstructions();
+        List<Embedding> embeddings = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            embeddings.add(new Embedding(embed(inputs.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        if (text != null) {
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (word.isEmpty()) {
+                    continue;
+                }
+                add(vector, word, WORD_WEIGHT);
+                String padded = "#" + word + "#";
+                for (int i = 0; i + 3 <= padded.length(); i++) {
+                    add(vector, padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+                }
+            }
+        }
+        return normalize(vector);
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    // Signed feature hashing: the sign bit keeps colliding features from only ever adding up
+    private void add(float[] vector, String feature, float weight) {
+        int hash = mix(feature.hashCode());
+        vector[Math.floorMod(hash, dimensions)] += (hash & 0x80000000) == 0 ? weight : -weight;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum == 0) {
+            // Cosine distance is undefined for the zero vector
+            vector[0] = 1f;
+            return vector;
+        }
+        float norm = (float) Math.sqrt(sum);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,235 @@
+package com.streamvault.backend.search;
+
+import com.streamvault.backend.model.SearchOutboxEvent;
+import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.repository.SearchOutboxRepository;
+import com.streamvault.backend.repository.VideoRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drains the search outbox into Elasticsearch. Each batch is claimed with
+ * {@code FOR UPDATE SKIP LOCKED}, so several instances can drain side by side. Events
+ * for the same video are coalesced into one document write. Documents the bulk request
+ * rejects are retried with exponential backoff while the rest of the batch is done; after
+ * {@code max-attempts} an event is parked with its last error instead of being retried.
+ * When semantic search is enabled the same batch is embedded into the vector index,
+ * keeping embedding work off the request path.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchIndexer {
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final SearchOutboxRepository outboxRepository;
+    private final VideoRepository videoRepository;
+    private final VideoIndexService videoIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<SemanticSearchService> semanticSearchService;
+
+    @Value("${search.indexer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.indexer.poll-interval:1s}")
+    private Duration pollInterval;
+
+    @Value("${search.indexer.batch-size:200}")
+    private int batchSize;
+
+    @Value("${search.indexer.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${search.indexer.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    @Value("${search.indexer.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${search.indexer.reindex-page-size:500}")
+    private int reindexPageSize;
+
+    private final AtomicBoolean reindexing = new AtomicBoolean();
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            executor.execute(this::reindexIfIndexEmpty);
+            executor.scheduleWithFixedDelay(this::drainSafely,
+                    pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Rebuilds every video document from Postgres in keyset pages, on the indexer thread.
+     *
+     * @return false if a full reindex is already running
+     */
+    public boolean reindexAll() {
+        if (!reindexing.compareAndSet(false, true)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                long lastId = 0;
+                long total = 0;
+                List<VideoEntity> page;
+                do {
+                    page = videoRepository.findByIdGreaterThanOrderById(lastId, Limit.of(reindexPageSize));
+                    videoIndexService.indexVideos(page);
+                    List<VideoEntity> batch = page;
+                    semanticSearchService.ifAvailable(semantic -> semantic.indexVideos(batch));
+                    if (!page.isEmpty()) {
+                        lastId = page.get(page.size() - 1).getId();
+                        total += page.size();
+                    }
+                } while (page.size() == reindexPageSize);
+                log.info("[searchIndexer] Full reindex completed, {} videos indexed", total);
+            } catch (Exception e) {
+                log.error("[searchIndexer] Full reindex failed: {}", e.getMessage(), e);
+            } finally {
+                reindexing.set(false);
+            }
+        });
+        return true;
+    }
+
+    // A new index (first start, or a mapping change that bumped the index name) is filled from Postgres
+    private void reindexIfIndexEmpty() {
+        try {
+            if (videoIndexService.isIndexEmpty() && videoRepository.count() > 0) {
+                log.info("[searchIndexer] Search index is empty, starting full reindex");
+                reindexAll();
+            }
+        } catch (Exception e) {
+            log.warn("[searchIndexer] Could not check the search index: {}", e.getMessage());
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            // Keep going while batches come back full, so a backlog drains without waiting on the poll interval
+            while (Boolean.TRUE.equals(transactionTemplate.execute(status -> drainBatch()))) {
+                log.debug("[searchIndexer] Full batch drained, continuing");
+            }
+        } catch (Exception e) {
+            log.warn("[searchIndexer] Drain failed: {}", e.getMessage());
+        }
+    }
+
+    boolean drainBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SearchOutboxEvent> events = outboxRepository.claimBatch(now, batchSize);
+        if (events.isEmpty()) {
+            return false;
+        }
+
+        Set<Long> videoIds = new LinkedHashSet<>();
+        events.forEach(event -> videoIds.add(event.getVideoId()));
+
+        // Video id -> error, for the documents that were not written
+        Map<Long, String> failed = new HashMap<>();
+        try {
+            List<VideoEntity> videos = videoRepository.findAllWithFileByIdIn(videoIds);
+            applyBulk(() -> videoIndexService.indexVideos(videos), failed);
+
+            // Videos gone from Postgres are removed from the index
+            Set<Long> removed = new LinkedHashSet<>(videoIds);
+            videos.forEach(video -> removed.remove(video.getId()));
+            applyBulk(() -> videoIndexService.removeVideos(removed), failed);
+            semanticSearchService.ifAvailable(semantic -> {
+                semantic.indexVideos(videos);
+                semantic.removeVideos(removed);
+            });
+        } catch (RuntimeException e) {
+            videoIds.forEach(id -> failed.putIfAbsent(id, e.getMessage()));
+        }
+
+        List<SearchOutboxEvent> done = new ArrayList<>();
+        List<SearchOutboxEvent> retry = new ArrayList<>();
+        for (SearchOutboxEvent event : events) {
+            (failed.containsKey(event.getVideoId()) ? retry : done).add(event);
+        }
+        if (!done.isEmpty()) {
+            outboxRepository.deleteAllInBatch(done);
+        }
+        for (SearchOutboxEvent event : retry) {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setLastError(truncate(failed.get(event.getVideoId())));
+            if (event.getAttempts() >= maxAttempts) {
+                // Never claimed again; kept with its error for inspection
+                event.setNextAttemptAt(null);
+                log.error("[searchIndexer] Giving up on videoId={} after {} attempts: {}",
+                        event.getVideoId(), event.getAttempts(), event.getLastError());
+            } else {
+                event.setNextAttemptAt(now.plus(backoff(event.getAttempts())));
+            }
+        }
+        if (!retry.isEmpty()) {
+            outboxRepository.saveAll(retry);
+            log.warn("[searchIndexer] Failed to index {} videos from {} outbox events: {}",
+                    failed.size(), retry.size(), failed.values().iterator().next());
+        }
+        if (!done.isEmpty()) {
+            log.info("[searchIndexer] Indexed {} videos from {} outbox events",
+                    done.stream().map(SearchOutboxEvent::getVideoId).distinct().count(), done.size());
+        }
+        return failed.isEmpty() && events.size() == batchSize;
+    }
+
+    Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    // Documents the bulk request rejected are recorded as failed; any other error propagates
+    private static void applyBulk(Runnable write, Map<Long, String> failed) {
+        try {
+            write.run();
+        } catch (BulkFailureException e) {
+            e.getFailedDocuments().forEach((id, details) -> failed.put(Long.valueOf(id), details.errorMessage()));
+        }
+    }
+
+    private String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,24 @@
+package com.streamvault.backend.search;
+
+import java.util.Locale;
+
+public enum SearchMode {
+
+    // Elasticsearch multi_match over title and description
+    KEYWORD,
+    // Nearest neighbours in the Redis vector index
+    SEMANTIC,
+    // Keyword and semantic rankings merged with reciprocal rank fusion
+    HYBRID;
+
+    public static SearchMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return KEYWORD;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown search mode '" + value + "'", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.streamvault.backend.search;
+
+import org.springframework.data.domain.Page;
+
+import java.util.function.Function;
+
+// nextCursor is null on the last page and on the database fallback, which only pages by offset
+public record SearchResult<T>(Page<T> page, String nextCursor) {
+
+    public <R> SearchResult<R> map(Function<? super T, ? extends R> converter) {
+        return new SearchResult<>(page.map(converter), nextCursor);
+    }
+}
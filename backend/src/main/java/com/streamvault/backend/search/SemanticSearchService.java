@@ -0,0 +1,109 @@
+package com.streamvault.backend.search;
+
+import com.streamvault.backend.model.VideoEntity;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embeds videos into the Redis vector index and runs nearest-neighbour queries against it.
+ * Writes come from {@link SearchIndexer}, so embedding never runs on a request thread.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "search.semantic.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class SemanticSearchService {
+
+    private final VectorStore videoVectorStore;
+
+    // The vector store embeds the whole collection through EmbeddingModel in token-bounded batches
+    public void indexVideos(Collection<VideoEntity> videos) {
+        if (!videos.isEmpty()) {
+            videoVectorStore.add(videos.stream().map(SemanticSearchService::toDocument).toList());
+        }
+    }
+
+    public void removeVideos(Collection<Long> videoIds) {
+        if (!videoIds.isEmpty()) {
+            videoVectorStore.delete(videoIds.stream().map(String::valueOf).toList());
+        }
+    }
+
+    /**
+     * @return ids of the {@code topK} videos closest to the query, nearest first
+     */
+    public List<Long> search(VideoSearchCriteria criteria, int topK) {
+        SearchRequest.Builder request = SearchRequest.builder()
+                .query(criteria.query())
+                .topK(topK);
+        Filter.Expression filter = filterExpression(criteria);
+        if (filter != null) {
+            request.filterExpression(filter);
+        }
+
+        List<Long> ids = videoVectorStore.similaritySearch(request.build()).stream()
+                .map(doc -> Long.parseLong(doc.getId()))
+                .toList();
+        log.debug("Vector search returned {} results", ids.size());
+        return ids;
+    }
+
+    static Filter.Expression filterExpression(VideoSearchCriteria criteria) {
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        List<FilterExpressionBuilder.Op> ops = new ArrayList<>();
+        if (criteria.readyForStreaming() != null) {
+            ops.add(b.eq("readyForStreaming", criteria.readyForStreaming().toString()));
+        }
+        if (criteria.minDurationSeconds() != null) {
+            ops.add(b.gte("durationSeconds", criteria.minDurationSeconds()));
+        }
+        if (criteria.maxDurationSeconds() != null) {
+            ops.add(b.lte("durationSeconds", criteria.maxDurationSeconds()));
+        }
+        if (criteria.minHeight() != null) {
+            ops.add(b.gte("height", criteria.minHeight()));
+        }
+        if (ops.isEmpty()) {
+            return null;
+        }
+        FilterExpressionBuilder.Op combined = ops.get(0);
+        for (int i = 1; i < ops.size(); i++) {
+            combined = b.and(combined, ops.get(i));
+        }
+        return combined.build();
+    }
+
+    // Title and description for now; transcripts can be appended here once they exist
+    static Document toDocument(VideoEntity video) {
+        StringBuilder text = new StringBuilder(video.getTitle() != null ? video.getTitle() : "");
+        if (video.getDescription() != null && !video.getDescription().isBlank()) {
+            text.append("\n").append(video.getDescription());
+        }
+
+        // Stored as a string so the TAG field matches regardless of JSON boolean support
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("readyForStreaming", String.valueOf(Boolean.TRUE.equals(video.getReadyForStreaming())));
+        if (video.getDurationSeconds() != null) {
+            metadata.put("durationSeconds", video.getDurationSeconds());
+        }
+        if (video.getHeight() != null) {
+            metadata.put("height", video.getHeight());
+        }
+        return new Document(video.getId().toString(), text.toString(), metadata);
+    }
+}
@@ -1,14 +1,19 @@
 package com.streamvault.backend.search;
 
+import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
-import jakarta.persistence.Id;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.annotations.Setting;
 import lombok.*;
 
 import java.time.Instant;
 
-@Document(indexName = "videos")
+// The mapping changed incompatibly from "videos"; a fresh index is filled by SearchIndexer on startup
+@Document(indexName = "videos-v2")
+@Setting(settingPath = "elasticsearch/video-settings.json")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,18 +21,27 @@ import java.time.Instant;
 public class VideoDocument {
 
     @Id
+    @Field(type = FieldType.Keyword)
     private String id;
 
-    @Field(type = FieldType.Text)
+    // title.autocomplete holds edge n-grams so partial words match as the user types
+    @MultiField(
+            mainField = @Field(type = FieldType.Text, analyzer = "english"),
+            otherFields = @InnerField(suffix = "autocomplete", type = FieldType.Text,
+                    analyzer = "autocomplete", searchAnalyzer = "autocomplete_search")
+    )
     private String title;
 
-    @Field(type = FieldType.Text)
+    @Field(type = FieldType.Text, analyzer = "english")
     private String description;
 
-    @Field(type = FieldType.Keyword)
+    @Field(type = FieldType.Keyword, index = false)
     private String thumbnailPath;
 
-    @Field(type = FieldType.Integer)
+    @Field(type = FieldType.Keyword, index = false)
+    private String hlsPath;
+
+    @Field(type = FieldType.Long)
     private Long durationSeconds;
 
     @Field(type = FieldType.Integer)
@@ -1,21 +1,44 @@
 package com.streamvault.backend.search;
 
+import com.streamvault.backend.model.SearchOutboxEvent;
 import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.repository.SearchOutboxRepository;
 import com.streamvault.backend.repository.VideoRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.dao.DataAccessResourceFailureException;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.stereotype.Service;
 import org.springframework.data.domain.Pageable;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -24,44 +47,282 @@ public class VideoIndexService {
 
     private final VideoSearchRepository videoSearchRepository;
     private final VideoRepository videoRepository;
+    private final SearchOutboxRepository searchOutboxRepository;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ObjectProvider<SemanticSearchService> semanticSearchService;
 
-    public void indexVideo(VideoEntity video) {
+    private static final List<String> SEARCH_FIELDS = List.of("title^3", "title.autocomplete^2", "description");
+    private static final String CURSOR_SEPARATOR = "|";
+    // Standard reciprocal rank fusion constant; damps the weight of the very top ranks
+    private static final int RRF_K = 60;
 
-        VideoDocument doc = VideoDocument.builder()
-                .id(video.getId().toString())
-                .title(video.getTitle())
-                .description(video.getDescription())
-                .thumbnailPath(video.getThumbnailPath())
-                .durationSeconds(video.getDurationSeconds())
-                .width(video.getWidth())
-                .height(video.getHeight())
-                .processedAt(video.getProcessedAt() != null
-                    ? video.getProcessedAt().atZone(ZoneOffset.UTC).toInstant()
-                    : Instant.now())
-                .readyForStreaming(video.getReadyForStreaming())
-                .build();
+    // Semantic and hybrid results are ranked from this many candidates per source
+    @Value("${search.semantic.candidates:100}")
+    private int semanticCandidates;
+
+    // Written in the caller's transaction; SearchIndexer applies it to Elasticsearch later
+    public void requestReindex(Long videoId) {
+        LocalDateTime now = LocalDateTime.now();
+        searchOutboxRepository.save(SearchOutboxEvent.builder()
+                .videoId(videoId)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build());
+    }
+
+    // Spring Data Elasticsearch sends saveAll and deleteAllById as single _bulk requests
+    public void indexVideos(Collection<VideoEntity> videos) {
+        if (!videos.isEmpty()) {
+            videoSearchRepository.saveAll(videos.stream().map(this::toDocument).toList());
+        }
+    }
 
-        videoSearchRepository.save(doc);
+    public void removeVideos(Collection<Long> videoIds) {
+        if (!videoIds.isEmpty()) {
+            videoSearchRepository.deleteAllById(videoIds.stream().map(String::valueOf).toList());
+        }
     }
 
-    public Page<VideoEntity> searchVideos(String query, Pageable pageable) {
+    public SearchResult<VideoEntity> searchVideos(VideoSearchCriteria criteria, Pageable pageable) {
+        if (criteria.mode() != SearchMode.KEYWORD) {
+            Page<Long> ids = rankedIds(criteria, pageable);
+            return new SearchResult<>(
+                    new PageImpl<>(loadInOrder(ids.getContent()), pageable, ids.getTotalElements()), null);
+        }
+
+        Object[] after = decodeCursor(criteria.cursor());
         try {
-            Page<VideoDocument> esResults = videoSearchRepository
-                    .findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(query, query, pageable);
+            SearchResult<VideoDocument> esResults = searchDocuments(criteria, after, pageable);
 
-            List<VideoEntity> videos = esResults.getContent().stream()
-                    .map(doc -> videoRepository.findById(Long.parseLong(doc.getId()))
-                            .orElse(null))
-                    .filter(v -> v != null)
+            List<Long> ids = esResults.page().getContent().stream()
+                    .map(doc -> Long.parseLong(doc.getId()))
                     .toList();
+            List<VideoEntity> videos = loadInOrder(ids);
 
             log.info("Elasticsearch returned {} results", videos.size());
-            return new PageImpl<>(videos, pageable, esResults.getTotalElements());
+            return new SearchResult<>(
+                    new PageImpl<>(videos, pageable, esResults.page().getTotalElements()),
+                    esResults.nextCursor());
+
+        } catch (RuntimeException ex) {
+            requireNoCursor(after, ex);
+            log.warn("Elasticsearch failed, falling back to database search: {}", ex.getMessage());
+            return new SearchResult<>(databaseSearch(criteria, pageable), null);
+        }
+    }
+
+    /**
+     * Search results built from the indexed documents alone, without touching Postgres.
+     * Falls back to the database search when Elasticsearch is unavailable, except for cursor
+     * requests, which fail with {@link IllegalStateException}.
+     */
+    public SearchResult<VideoDocument> searchProjected(VideoSearchCriteria criteria, Pageable pageable) {
+        if (criteria.mode() != SearchMode.KEYWORD) {
+            Page<Long> ids = rankedIds(criteria, pageable);
+            return new SearchResult<>(
+                    new PageImpl<>(documentsInOrder(ids.getContent()), pageable, ids.getTotalElements()), null);
+        }
+
+        Object[] after = decodeCursor(criteria.cursor());
+        try {
+            return searchDocuments(criteria, after, pageable);
+        } catch (RuntimeException ex) {
+            requireNoCursor(after, ex);
+            log.warn("Elasticsearch failed, falling back to database search: {}", ex.getMessage());
+            return new SearchResult<>(databaseSearch(criteria, pageable).map(this::toDocument), null);
+        }
+    }
+
+    // A cursor is a position in the Elasticsearch ranking, which the database search cannot resume
+    private static void requireNoCursor(Object[] after, RuntimeException cause) {
+        if (after != null) {
+            throw new IllegalStateException("Search is unavailable; cursor paging has no database fallback", cause);
+        }
+    }
+
+    public boolean isIndexEmpty() {
+        return videoSearchRepository.count() == 0;
+    }
+
+    // One page of the semantic (or fused hybrid) ranking; only the first semanticCandidates results are reachable
+    private Page<Long> rankedIds(VideoSearchCriteria criteria, Pageable pageable) {
+        SemanticSearchService semantic = semanticSearchService.getIfAvailable();
+        if (semantic == null) {
+            throw new IllegalArgumentException("Semantic search is not enabled");
+        }
+        if (criteria.cursor() != null && !criteria.cursor().isBlank()) {
+            throw new IllegalArgumentException("Cursor paging is only supported in keyword mode");
+        }
+
+        List<Long> ranked = semantic.search(criteria, semanticCandidates);
+        if (criteria.mode() == SearchMode.HYBRID) {
+            ranked = reciprocalRankFusion(List.of(keywordIds(criteria), ranked));
+        }
+        List<Long> pageIds = ranked.stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
+        log.info("{} search ranked {} results", criteria.mode(), ranked.size());
+        return new PageImpl<>(pageIds, pageable, ranked.size());
+    }
+
+    private List<Long> keywordIds(VideoSearchCriteria criteria) {
+        PageRequest candidates = PageRequest.of(0, semanticCandidates);
+        try {
+            return searchDocuments(criteria, null, candidates).page().getContent().stream()
+                    .map(doc -> Long.parseLong(doc.getId()))
+                    .toList();
+        } catch (RuntimeException ex) {
+            log.warn("Elasticsearch failed, falling back to database search: {}", ex.getMessage());
+            return databaseSearch(criteria, candidates).getContent().stream()
+                    .map(VideoEntity::getId)
+                    .toList();
+        }
+    }
+
+    // score(d) = sum over rankings of 1 / (k + rank); ties keep the order of first appearance
+    static List<Long> reciprocalRankFusion(List<List<Long>> rankings) {
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (List<Long> ranking : rankings) {
+            for (int i = 0; i < ranking.size(); i++) {
+                scores.merge(ranking.get(i), 1.0 / (RRF_K + i + 1), Double::sum);
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .toList();
+    }
 
+    // Keeps the given order; videos deleted from Postgres since they were ranked are dropped
+    private List<VideoEntity> loadInOrder(List<Long> ids) {
+        Map<Long, VideoEntity> byId = videoRepository.findAllWithFileByIdIn(ids).stream()
+                .collect(Collectors.toMap(VideoEntity::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private List<VideoDocument> documentsInOrder(List<Long> ids) {
+        try {
+            Map<String, VideoDocument> byId = new LinkedHashMap<>();
+            videoSearchRepository.findAllById(ids.stream().map(String::valueOf).toList())
+                    .forEach(doc -> byId.put(doc.getId(), doc));
+            return ids.stream()
+                    .map(id -> byId.get(id.toString()))
+                    .filter(Objects::nonNull)
+                    .toList();
         } catch (RuntimeException ex) {
-            log.warn("Elasticsearch failed, falling back to database search", ex.getMessage());
-            return videoRepository.findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(query, query, pageable);
+            log.warn("Elasticsearch failed, loading documents from the database: {}", ex.getMessage());
+            return loadInOrder(ids).stream().map(this::toDocument).toList();
+        }
+    }
+
+    private SearchResult<VideoDocument> searchDocuments(VideoSearchCriteria criteria, Object[] after, Pageable pageable) {
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> {
+                    b.must(m -> m.multiMatch(mm -> mm
+                            .query(criteria.query())
+                            .fields(SEARCH_FIELDS)
+                            .type(TextQueryType.BestFields)
+                            .tieBreaker(0.3)));
+                    addFilters(b, criteria);
+                    return b;
+                }))
+                // id breaks score ties, so search_after resumes at a stable position
+                .withSort(s -> s.score(sc -> sc.order(SortOrder.Desc)))
+                .withSort(s -> s.field(f -> f.field("id").order(SortOrder.Asc)))
+                .withTrackTotalHits(true);
+
+        if (after != null) {
+            builder.withSearchAfter(List.of(after))
+                    .withPageable(PageRequest.of(0, pageable.getPageSize()));
+        } else {
+            builder.withPageable(pageable);
+        }
+
+        SearchHits<VideoDocument> hits = elasticsearchOperations.search(builder.build(), VideoDocument.class);
+        List<VideoDocument> docs = hits.getSearchHits().stream().map(SearchHit::getContent).toList();
+
+        String nextCursor = null;
+        if (docs.size() == pageable.getPageSize()) {
+            nextCursor = encodeCursor(hits.getSearchHit(docs.size() - 1).getSortValues());
+        }
+        return new SearchResult<>(new PageImpl<>(docs, pageable, hits.getTotalHits()), nextCursor);
+    }
+
+    private void addFilters(BoolQuery.Builder b, VideoSearchCriteria criteria) {
+        if (criteria.readyForStreaming() != null) {
+            b.filter(f -> f.term(t -> t.field("readyForStreaming").value(criteria.readyForStreaming())));
+        }
+        if (criteria.minDurationSeconds() != null || criteria.maxDurationSeconds() != null) {
+            b.filter(f -> f.range(r -> r.number(n -> {
+                n.field("durationSeconds");
+                if (criteria.minDurationSeconds() != null) {
+                    n.gte(criteria.minDurationSeconds().doubleValue());
+                }
+                if (criteria.maxDurationSeconds() != null) {
+                    n.lte(criteria.maxDurationSeconds().doubleValue());
+                }
+                return n;
+            })));
+        }
+        if (criteria.minHeight() != null) {
+            b.filter(f -> f.range(r -> r.number(n -> n.field("height").gte(criteria.minHeight().doubleValue()))));
         }
     }
 
+    private Page<VideoEntity> databaseSearch(VideoSearchCriteria criteria, Pageable pageable) {
+        String tsquery = toPrefixTsQuery(criteria.query());
+        if (tsquery.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return videoRepository.fullTextSearch(tsquery, criteria.readyForStreaming(),
+                criteria.minDurationSeconds(), criteria.maxDurationSeconds(), criteria.minHeight(), pageable);
+    }
+
+    // "big buck" -> "big:* & buck:*", so the fallback also matches word prefixes
+    static String toPrefixTsQuery(String query) {
+        return Arrays.stream(query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+    }
+
+    // The cursor is the sort values of the last hit: score and id
+    static String encodeCursor(List<Object> sortValues) {
+        String raw = sortValues.get(0) + CURSOR_SEPARATOR + sortValues.get(1);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(CURSOR_SEPARATOR);
+            return new Object[]{Double.parseDouble(raw.substring(0, separator)), raw.substring(separator + 1)};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+    }
+
+    private VideoDocument toDocument(VideoEntity video) {
+        return VideoDocument.builder()
+                .id(video.getId().toString())
+                .title(video.getTitle())
+                .description(video.getDescription())
+                .thumbnailPath(video.getThumbnailPath())
+                .hlsPath(video.getHlsPath())
+                .durationSeconds(video.getDurationSeconds())
+                .width(video.getWidth())
+                .height(video.getHeight())
+                .processedAt(video.getProcessedAt() != null
+                    ? video.getProcessedAt().atZone(ZoneOffset.UTC).toInstant()
+                    : Instant.now())
+                .readyForStreaming(video.getReadyForStreaming())
+                .build();
+    }
 }
@@ -0,0 +1,27 @@
+package com.streamvault.backend.search;
+
+/**
+ * Full-text query plus optional filters. {@code cursor} is the opaque value returned with
+ * the previous page; when present it replaces offset paging with search_after. Cursors
+ * only apply to {@link SearchMode#KEYWORD}.
+ */
+public record VideoSearchCriteria(
+        String query,
+        Boolean readyForStreaming,
+        Long minDurationSeconds,
+        Long maxDurationSeconds,
+        Integer minHeight,
+        String cursor,
+        SearchMode mode
+) {
+
+    public VideoSearchCriteria {
+        if (mode == null) {
+            mode = SearchMode.KEYWORD;
+        }
+    }
+
+    public static VideoSearchCriteria of(String query) {
+        return new VideoSearchCriteria(query, null, null, null, null, null, SearchMode.KEYWORD);
+    }
+}
@@ -0,0 +1,348 @@
+package com.streamvault.backend.service;
+
+import com.streamvault.backend.dto.ByteRange;
+import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.util.HttpRangeParser;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.MinioAsyncClient;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Non-blocking alternative to {@link FileService#streamFile} for whole-file and single-range
+ * reads of objects stored whole in MinIO. The object is requested through {@link MinioAsyncClient},
+ * so no thread waits for MinIO's first byte, and the response is written through a servlet
+ * {@link WriteListener}, so a slow viewer holds two buffers instead of a request thread.
+ * <p>
+ * OkHttp response bodies can only be read blocking, so a small pump pool reads the MinIO body
+ * one buffer at a time, and only while the viewer keeps up. A viewer that stops reading pauses
+ * its MinIO download as well.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "streaming.async.enabled", havingValue = "true")
+public class AsyncVideoStreamer {
+
+    private final MinioAsyncClient minioAsyncClient;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final long openRangeWindow;
+    private final Executor pump;
+    private final AtomicInteger active = new AtomicInteger();
+
+    @Autowired
+    public AsyncVideoStreamer(
+            MinioAsyncClient minioAsyncClient,
+            MeterRegistry meterRegistry,
+            @Value("${streaming.async.buffer-size:64KB}") DataSize bufferSize,
+            @Value("${streaming.async.pump-threads:8}") int pumpThreads,
+            @Value("${streaming.async.timeout:1h}") Duration timeout,
+            @Value("${streaming.open-range-window:4MB}") DataSize openRangeWindow) {
+        this(minioAsyncClient, meterRegistry, bufferSize, timeout, openRangeWindow, newPump(pumpThreads));
+    }
+
+    AsyncVideoStreamer(MinioAsyncClient minioAsyncClient, MeterRegistry meterRegistry, DataSize bufferSize,
+                       Duration timeout, DataSize openRangeWindow, Executor pump) {
+        this.minioAsyncClient = minioAsyncClient;
+        this.bufferSize = (int) bufferSize.toBytes();
+        this.timeout = timeout;
+        this.openRangeWindow = openRangeWindow.toBytes();
+        this.pump = pump;
+        meterRegistry.gauge("video.stream.async.active", active);
+    }
+
+    private static ExecutorService newPump(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "stream-pump-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts streaming {@code file} and returns true, or returns false without touching the
+     * response when the request has to take the blocking path: multipart ranges, chunked
+     * files and empty files.
+     */
+    public boolean stream(FileEntity file, String rangeHeader, HttpServletRequest request, HttpServletResponse response) {
+        if (file.getStorageLayout() == FileEntity.StorageLayout.CHUNKED || file.getSize() == 0
+                || !request.isAsyncSupported()) {
+            return false;
+        }
+        List<ByteRange> ranges = HttpRangeParser.parse(rangeHeader, file.getSize(), openRangeWindow);
+        if (ranges.size() > 1) {
+            return false;
+        }
+
+        boolean partial = !ranges.isEmpty();
+        ByteRange range = partial ? ranges.get(0) : new ByteRange(0, file.getSize() - 1);
+
+        response.setStatus(partial ? 206 : 200);
+        response.setContentType(file.getFileType());
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setContentLengthLong(range.length());
+        if (partial) {
+            response.setHeader("Content-Range", "bytes %d-%d/%d".formatted(range.start(), range.end(), file.getSize()));
+        }
+
+        AsyncContext context = request.startAsync();
+        context.setTimeout(timeout.toMillis());
+        Transfer transfer = new Transfer(file.getMinioPath(), context, response, range.length());
+        context.addListener(transfer);
+
+        try {
+            minioAsyncClient.getObject(GetObjectArgs.builder()
+                            .bucket(file.getBucket())
+                            .object(file.getMinioPath())
+                            .offset(range.start())
+                            .length(range.length())
+                            .build())
+                    .whenComplete((in, error) -> {
+                        if (error != null) {
+                            transfer.fail(error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error);
+                        } else {
+                            transfer.start(in);
+                        }
+                    });
+        } catch (Exception e) {
+            transfer.fail(e);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pump instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Moves one range from MinIO to the client. At most one buffer is being read while the
+     * other waits to be written, and a buffer is only refilled once the container has
+     * reported the write that used it as done.
+     */
+    private final class Transfer implements WriteListener, AsyncListener {
+
+        private final String object;
+        private final AsyncContext context;
+        private final HttpServletResponse response;
+        private final byte[][] buffers = {new byte[bufferSize], new byte[bufferSize]};
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        // Set on an OkHttp thread, closed from whichever thread ends the transfer
+        private volatile InputStream in;
+        private ServletOutputStream out;
+        private long remaining;
+        private int nextBuffer;
+        private byte[] pending;
+        private int pendingLength;
+        private boolean reading;
+        private boolean finished;
+
+        Transfer(String object, AsyncContext context, HttpServletResponse response, long length) {
+            this.object = object;
+            this.context = context;
+            this.response = response;
+            this.remaining = length;
+            active.incrementAndGet();
+        }
+
+        void start(InputStream in) {
+            this.in = in;
+            if (closed.get()) {
+                // Failed or timed out while MinIO was still answering
+                closeInput(in);
+                return;
+            }
+            try {
+                out = response.getOutputStream();
+                // The container calls onWritePossible once the stream can take data
+                out.setWriteListener(this);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onWritePossible() {
+            drain();
+        }
+
+        private void drain() {
+            lock.lock();
+            try {
+                if (finished) {
+                    return;
+                }
+                if (pending != null) {
+                    if (!out.isReady()) {
+                        return;
+                    }
+                    out.write(pending, 0, pendingLength);
+                    pending = null;
+                }
+                if (remaining == 0) {
+                    // Complete only once the container has taken the last write
+                    if (!reading && out.isReady()) {
+                        finish();
+                    }
+                    return;
+                }
+                if (!reading) {
+                    reading = true;
+                    pump.execute(this::read);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void read() {
+            byte[] buffer;
+            int length;
+            lock.lock();
+            try {
+                if (finished) {
+                    return;
+                }
+                buffer = buffers[nextBuffer];
+                nextBuffer ^= 1;
+                length = (int) Math.min(buffer.length, remaining);
+            } finally {
+                lock.unlock();
+            }
+
+            // Takes whatever the socket has rather than waiting for a full buffer, so a slow MinIO
+            // body holds a pump thread for at most one read timeout
+            int n;
+            try {
+                n = in.read(buffer, 0, length);
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            if (n < 0) {
+                fail(new EOFException("Object ended with " + remaining + " bytes left"));
+                return;
+            }
+
+            lock.lock();
+            try {
+                reading = false;
+                remaining -= n;
+                pending = buffer;
+                pendingLength = n;
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }
+
+        private void finish() {
+            finished = true;
+            close();
+            context.complete();
+        }
+
+        void fail(Throwable error) {
+            lock.lock();
+            try {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            } finally {
+                lock.unlock();
+            }
+
+            log.warn("[asyncStream] Streaming {} failed: {}", object, error.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            close();
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // The container already completed the request, e.g. after a client disconnect
+            }
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            active.decrementAndGet();
+            if (in != null) {
+                closeInput(in);
+            }
+        }
+
+        private void closeInput(InputStream input) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                log.debug("[asyncStream] Failed to close {}: {}", object, e.getMessage());
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            fail(t);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            fail(new TimeoutException("Stream did not finish within " + timeout));
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            fail(event.getThrowable());
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.streamvault.backend.service;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads upload chunks from MinIO with bounded parallelism and hands them to a
+ * consumer strictly in chunk order, as soon as the next chunk in sequence is ready.
+ * At most {@code concurrency} chunks are downloaded or waiting on local disk at once.
+ */
+@Slf4j
+@Component
+public class ChunkDownloadPipeline {
+
+    private final MinioClient minioClient;
+    private final int concurrency;
+    private final ExecutorService executor;
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        // Takes ownership of the temp file and is responsible for deleting it
+        void accept(int index, Path chunk) throws IOException;
+    }
+
+    public ChunkDownloadPipeline(
+            MinioClient minioClient,
+            @Value("${upload.merge.download-concurrency:8}") int concurrency,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.minioClient = minioClient;
+        this.concurrency = concurrency;
+
+        if (virtualThreads) {
+            // fetchInOrder already caps in-flight downloads, so no pool is needed to bound them
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chunk-download-", 1).factory());
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "chunk-download-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void fetchInOrder(String bucket, List<String> objects, String tempPrefix, ChunkConsumer consumer) throws IOException {
+        Deque<Future<Path>> inFlight = new ArrayDeque<>(concurrency);
+        int next = 0;
+
+        try {
+            while (next < objects.size() && inFlight.size() < concurrency) {
+                inFlight.add(submit(bucket, objects.get(next++), tempPrefix));
+            }
+
+            for (int index = 0; index < objects.size(); index++) {
+                Path chunk = await(inFlight.poll());
+                if (next < objects.size()) {
+                    inFlight.add(submit(bucket, objects.get(next++), tempPrefix));
+                }
+                consumer.accept(index, chunk);
+            }
+        } finally {
+            for (Future<Path> pending : inFlight) {
+                discard(pending);
+            }
+        }
+    }
+
+    private Future<Path> submit(String bucket, String object, String tempPrefix) {
+        return executor.submit(() -> {
+            log.debug("[chunkDownload] Downloading chunk {} from MinIO", object);
+            Path tempChunk = Files.createTempFile(tempPrefix + "_chunk_", ".part");
+            try (InputStream is = minioClient.getObject(
+                    GetObjectArgs.builder().bucket(bucket).object(object).build())) {
+                Files.copy(is, tempChunk, StandardCopyOption.REPLACE_EXISTING);
+                return tempChunk;
+            } catch (Exception e) {
+                Files.deleteIfExists(tempChunk);
+                throw e;
+            }
+        });
+    }
+
+    private Path await(Future<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading chunks", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to download chunk: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void discard(Future<Path> future) {
+        if (future.cancel(true)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(future.get());
+        } catch (Exception e) {
+            // The download failed or was cancelled, so there is no temp file to remove
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,53 +1,188 @@
 package com.streamvault.backend.service;
 
+import com.streamvault.backend.dto.DirectUploadResponse;
+import com.streamvault.backend.dto.UploadInitResponse;
+import com.streamvault.backend.exception.DuplicateFileException;
+import com.streamvault.backend.exception.HashMismatchException;
 import com.streamvault.backend.kafka.FileUploadProducer;
 import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.model.TranscodeJob;
 import com.streamvault.backend.model.UploadStatus;
+import com.streamvault.backend.model.UploadStatus.MergeStage;
 import com.streamvault.backend.model.VideoEntity;
 import com.streamvault.backend.model.FileEntity.FileCategory;
 import com.streamvault.backend.repository.UploadStatusRepository;
-import com.streamvault.backend.search.VideoIndexService;
+import com.streamvault.backend.storage.ContentStore;
+import com.streamvault.backend.transcode.TranscodeJobCompletedEvent;
+import com.streamvault.backend.transcode.TranscodeScheduler;
 import com.streamvault.backend.util.Util;
 
-import io.minio.GetObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.ListObjectsArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
-import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ChunkUploadService {
 
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate redisTemplate;
     private final FileService fileService;
     private final VideoService videoService;
-    private final VideoIndexService videoIndexService;
     private final UploadStatusRepository uploadStatusRepository;
     private final FileUploadProducer fileUploadProducer;
     private final MinioClient minioClient;
+    private final ChunkDownloadPipeline chunkDownloadPipeline;
+    private final TranscodeScheduler transcodeScheduler;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final ChunkUrlSigner chunkUrlSigner;
 
     private static final String CHUNK_BUCKET = "upload-chunks";
     private static final String CHUNK_KEY_PREFIX = "upload:";
+    private static final String CHUNK_SIZES_SUFFIX = ":sizes";
+    private static final String CHUNK_BITMAP_SUFFIX = ":bitmap";
+    private static final String CHUNK_ACTIVITY_SUFFIX = ":active";
+    private static final String CHUNK_LEASE_INFIX = ":chunk:";
+    private static final String INFLIGHT_KEY_PREFIX = "upload:inflight:";
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
     private static final Duration UPLOAD_TTL = Duration.ofHours(24);
+    // An INITIATED upload that stored no chunk for this long no longer holds its in-flight claim
+    private static final Duration CLAIM_IDLE_TIMEOUT = Duration.ofMinutes(15);
+    // How long a send holds its chunk number before a crashed send's number can be taken again
+    private static final Duration CHUNK_WRITE_LEASE = Duration.ofMinutes(10);
+    private static final long MIN_COMPOSE_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_COMPOSE_SOURCES = 10_000;
+
+    // Bounds chunk numbers, and with them the chunk bitmap; S3 compose and multipart uploads top out here too
+    public static final int MAX_CHUNKS = 10_000;
+
+    // Registers chunks in one round trip: HSETNX makes a repeated chunk number a no-op, and the
+    // bitmap marks each registered chunk number so missing chunks can be found with a single GET.
+    // A chunk's size is only recorded along with the chunk it describes.
+    // Every call also refreshes the upload's activity key, which keeps its in-flight claim alive.
+    // KEYS = (chunks, sizes, bitmap, activity); ARGV = ttlSeconds, idleSeconds, then (chunkNumber,
+    // objectName, size) triples. Returns how many chunks were new.
+    private static final RedisScript<Long> REGISTER_CHUNKS_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('SET', KEYS[4], '1', 'EX', ARGV[2])
+            local added = 0
+            for i = 3, #ARGV, 3 do
+              if redis.call('HSETNX', KEYS[1], ARGV[i], ARGV[i + 1]) == 1 then
+                added = added + 1
+                redis.call('SETBIT', KEYS[3], ARGV[i], 1)
+                redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 2])
+              end
+            end
+            if added > 0 and redis.call('TTL', KEYS[1]) == -1 then
+              for k = 1, 3 do
+                redis.call('EXPIRE', KEYS[k], ARGV[1])
+              end
+            end
+            return added
+            """, Long.class);
+
+    // Takes a chunk number for one send before it is written: fails if the chunk is registered or
+    // another send holds its lease. KEYS = (chunks, lease); ARGV = chunkNumber, token, leaseSeconds.
+    private static final RedisScript<Long> CLAIM_CHUNK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 1 then
+              return 0
+            end
+            if redis.call('SET', KEYS[2], ARGV[2], 'NX', 'EX', ARGV[3]) then
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    // Registers a written chunk if its send still holds the lease, then drops the lease.
+    // KEYS = (chunks, sizes, bitmap, activity, lease); ARGV = ttlSeconds, idleSeconds, chunkNumber,
+    // objectName, size, token. Returns 1 if the chunk was registered.
+    private static final RedisScript<Long> CONFIRM_CHUNK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[5]) ~= ARGV[6] then
+              return 0
+            end
+            redis.call('DEL', KEYS[5])
+            redis.call('SET', KEYS[4], '1', 'EX', ARGV[2])
+            if redis.call('HSETNX', KEYS[1], ARGV[3], ARGV[4]) == 0 then
+              return 0
+            end
+            redis.call('SETBIT', KEYS[3], ARGV[3], 1)
+            redis.call('HSET', KEYS[2], ARGV[3], ARGV[5])
+            if redis.call('TTL', KEYS[1]) == -1 then
+              for k = 1, 3 do
+                redis.call('EXPIRE', KEYS[k], ARGV[1])
+              end
+            end
+            return 1
+            """, Long.class);
+
+    // Releases an in-flight claim only if this upload still holds it
+    private static final RedisScript<Long> RELEASE_CLAIM_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    @Value("${upload.merge.compose-enabled:true}")
+    private boolean composeMergeEnabled;
+
+    // Staging files for local merges; a resumed merge on the same node finds its file here
+    @Value("${upload.merge.work-dir:${java.io.tmpdir}/streamvault-merge}")
+    private String mergeWorkDir;
+
+    @Value("${upload.direct.enabled:false}")
+    private boolean directUploadsEnabled;
+
+    // Presigned PUTs cannot cap their body size, so oversized chunks are caught at /complete
+    @Value("${upload.direct.max-chunk-size:10MB}")
+    private DataSize maxDirectChunkSize;
+
+    @Value("${hls.enabled:true}")
+    private boolean hlsEnabled;
 
     private boolean isVideo(String fileName) {
         String ext = fileName.toLowerCase();
@@ -65,34 +200,124 @@ public class ChunkUploadService {
         return uploadId;
     }
 
-    public boolean saveChunk(String uploadId, int chunkNumber, MultipartFile file) {
-        String key = CHUNK_KEY_PREFIX + uploadId;
-        String redisField = String.valueOf(chunkNumber);
-        String objectName = uploadId + "/chunk_" + chunkNumber;
-        
-        if (redisTemplate.opsForHash().hasKey(key, redisField)) {
-            return false;
+    /**
+     * Starts an upload whose content hash the client computed up front. Content that is already
+     * stored is answered with the existing file and nothing is uploaded. While an upload of the
+     * same content is in flight, it holds a claim on the hash and other uploads are pointed at it.
+     */
+    public UploadInitResponse initialiseUpload(String declaredHash) {
+        String hash = declaredHash.toLowerCase(Locale.ROOT);
+        if (!SHA256_HEX.matcher(hash).matches()) {
+            throw new IllegalArgumentException("hash must be a hex SHA-256 digest");
         }
 
-        try {
-            minioClient.putObject(
-                PutObjectArgs.builder()
-                    .bucket(CHUNK_BUCKET)
-                    .object(objectName)
-                    .stream(file.getInputStream(), file.getSize(), -1)
-                    .contentType("application/octet-stream")
-                    .build()
-            );
+        Optional<FileEntity> existing = fileService.findByHash(hash);
+        if (existing.isPresent()) {
+            log.info("[initialiseUpload] Content {} already stored as file ID={}", hash, existing.get().getId());
+            return new UploadInitResponse(null, existing.get().getId(), null, "File already exists");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        uploadStatusRepository.save(
+                UploadStatus.builder()
+                        .uploadId(uploadId)
+                        .status(UploadStatus.Status.INITIATED)
+                        .declaredHash(hash)
+                        .build()
+        );
+        redisTemplate.opsForValue().set(activityKey(uploadId), "1", CLAIM_IDLE_TIMEOUT);
 
-            redisTemplate.opsForHash()
-                    .put(key, redisField, objectName);
+        // The claim only steers clients; one that uploads anyway ends up as a duplicate of whichever stores first
+        String inFlight = claim(hash, uploadId);
+        if (inFlight != null) {
+            log.info("[initialiseUpload] Content {} is already being uploaded as uploadId={}", hash, inFlight);
+            return new UploadInitResponse(uploadId, null, inFlight, "An upload of this file is already in progress");
+        }
+        return new UploadInitResponse(uploadId, null, null, "Upload initialised");
+    }
 
-            if (redisTemplate.getExpire(key) == -1) {
-                redisTemplate.expire(key, UPLOAD_TTL);
+    // Returns the uploadId holding the claim, or null once uploadId holds it. Claims of uploads that
+    // failed without releasing them (e.g. in FFmpeg), or stopped sending chunks, are taken over
+    // rather than waited out.
+    private String claim(String hash, String uploadId) {
+        String key = INFLIGHT_KEY_PREFIX + hash;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, uploadId, UPLOAD_TTL))) {
+                return null;
+            }
+            String holder = redisTemplate.opsForValue().get(key);
+            if (holder == null) {
+                continue;
             }
+            if (!isAbandoned(holder)) {
+                return holder;
+            }
+            log.info("[initialiseUpload] Taking over the claim on {} from abandoned uploadId={}", hash, holder);
+            redisTemplate.execute(RELEASE_CLAIM_SCRIPT, List.of(key), holder);
+        }
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    private boolean isAbandoned(String holder) {
+        Optional<UploadStatus> status = uploadStatusRepository.findByUploadId(holder);
+        if (status.isEmpty()) {
             return true;
+        }
+        return switch (status.get().getStatus()) {
+            case FAILED, CANCELLED -> true;
+            case INITIATED -> !Boolean.TRUE.equals(redisTemplate.hasKey(activityKey(holder)));
+            default -> false;
+        };
+    }
+
+    private static String activityKey(String uploadId) {
+        return CHUNK_KEY_PREFIX + uploadId + CHUNK_ACTIVITY_SUFFIX;
+    }
+
+    private void releaseClaim(UploadStatus status) {
+        if (status.getDeclaredHash() != null) {
+            redisTemplate.execute(RELEASE_CLAIM_SCRIPT,
+                    List.of(INFLIGHT_KEY_PREFIX + status.getDeclaredHash()), status.getUploadId());
+        }
+    }
+
+    // A chunk number that is already registered, or being written by another send, is reported as
+    // false without writing it. The send that takes the number is the only one that registers it.
+    public boolean saveChunk(String uploadId, int chunkNumber, MultipartFile file) {
+        if (chunkNumber <= 0 || chunkNumber > MAX_CHUNKS) {
+            throw new IllegalArgumentException("chunkNumber must be between 1 and " + MAX_CHUNKS);
+        }
+        String number = String.valueOf(chunkNumber);
+        String leaseKey = CHUNK_KEY_PREFIX + uploadId + CHUNK_LEASE_INFIX + chunkNumber;
+        String token = UUID.randomUUID().toString();
+        Long claimed = redisTemplate.execute(CLAIM_CHUNK_SCRIPT, List.of(CHUNK_KEY_PREFIX + uploadId, leaseKey),
+                number, token, String.valueOf(CHUNK_WRITE_LEASE.toSeconds()));
+        if (claimed == null || claimed == 0) {
+            return false;
+        }
+        String objectName = chunkObjectName(uploadId, chunkNumber);
+
+        try {
+            try (InputStream is = file.getInputStream()) {
+                minioClient.putObject(
+                    PutObjectArgs.builder()
+                        .bucket(CHUNK_BUCKET)
+                        .object(objectName)
+                        .stream(is, file.getSize(), -1)
+                        .contentType("application/octet-stream")
+                        .build()
+                );
+            }
+
+            List<String> keys = new ArrayList<>(chunkKeys(uploadId));
+            keys.add(leaseKey);
+            Long registered = redisTemplate.execute(CONFIRM_CHUNK_SCRIPT, keys,
+                    String.valueOf(UPLOAD_TTL.toSeconds()), String.valueOf(CLAIM_IDLE_TIMEOUT.toSeconds()),
+                    number, objectName, String.valueOf(file.getSize()), token);
+            return registered != null && registered == 1;
 
         } catch (Exception e) {
+            redisTemplate.execute(RELEASE_CLAIM_SCRIPT, List.of(leaseKey), token);
             throw new RuntimeException(
                 String.format("Failed to store chunk %d for uploadId=%s to MinIO", chunkNumber, uploadId),
                 e
@@ -100,154 +325,556 @@ public class ChunkUploadService {
         }
     }
 
-    public void completeUpload(String uploadId, String fileName) {
+    private long registerChunks(String uploadId, List<String> triples) {
+        List<String> args = new ArrayList<>(triples.size() + 1);
+        args.add(String.valueOf(UPLOAD_TTL.toSeconds()));
+        args.add(String.valueOf(CLAIM_IDLE_TIMEOUT.toSeconds()));
+        args.addAll(triples);
+        Long added = redisTemplate.execute(REGISTER_CHUNKS_SCRIPT, chunkKeys(uploadId), args.toArray());
+        return added != null ? added : 0;
+    }
+
+    private static List<String> chunkKeys(String uploadId) {
+        String key = CHUNK_KEY_PREFIX + uploadId;
+        return List.of(key, key + CHUNK_SIZES_SUFFIX, key + CHUNK_BITMAP_SUFFIX, key + CHUNK_ACTIVITY_SUFFIX);
+    }
+
+    // Returns the stored file when the declared content turned up while this upload was in progress
+    public Optional<FileEntity> completeUpload(String uploadId, String fileName) throws Exception {
         UploadStatus status = uploadStatusRepository.findByUploadId(uploadId)
                 .orElseThrow(() -> new IllegalStateException("UploadId not found"));
+
+        if (status.getDeclaredHash() != null) {
+            Optional<FileEntity> existing = fileService.findByHash(status.getDeclaredHash());
+            if (existing.isPresent()) {
+                discardChunks(uploadId);
+                releaseClaim(status);
+                uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.DUPLICATE);
+                log.info("[completeUpload] uploadId={} duplicates file ID={}, skipping the merge",
+                        uploadId, existing.get().getId());
+                return existing;
+            }
+        }
+
+        if (directUploadsEnabled) {
+            registerDirectChunks(uploadId);
+        }
         status.setStatus(UploadStatus.Status.PROCESSING);
         status.setFileName(fileName);
         uploadStatusRepository.save(status);
 
         // Publish Kafka event
         fileUploadProducer.sendUploadCompleted(uploadId, fileName);
+        return Optional.empty();
     }
 
-    public FileEntity mergeChunksAndSaveFile(String uploadId, String fileName) throws IOException {
-        UploadStatus status = uploadStatusRepository.findByUploadId(uploadId)
-                .orElseThrow(() -> new IllegalStateException("Invalid uploadId"));
+    public DirectUploadResponse initialiseDirectUpload(int chunkCount) {
+        requireDirectUploads();
+        String uploadId = initialiseUpload();
+        return presignChunks(uploadId, IntStream.rangeClosed(1, chunkCount).boxed().toList());
+    }
 
-        String key = CHUNK_KEY_PREFIX + uploadId;
+    // Also re-issues URLs for chunks whose earlier URLs expired before they were uploaded
+    public DirectUploadResponse presignChunks(String uploadId, List<Integer> chunkNumbers) {
+        requireDirectUploads();
+        UploadStatus status = getUploadStatus(uploadId);
+        if (status.getStatus() != UploadStatus.Status.INITIATED) {
+            throw new IllegalStateException("Upload " + uploadId + " is " + status.getStatus() + " and takes no more chunks");
+        }
 
-        try {
-            log.info("[mergeChunks] Starting merge for uploadId={}, fileName={}", uploadId, fileName);
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (int chunkNumber : chunkNumbers) {
+            urls.put(chunkNumber, chunkUrlSigner.presignPut(CHUNK_BUCKET, chunkObjectName(uploadId, chunkNumber)));
+        }
+        return new DirectUploadResponse(uploadId, urls, Instant.now().plus(chunkUrlSigner.getExpiry()));
+    }
 
-            // 1. Get chunk objects from Redis sorted by index
-            List<String> chunkObjects = redisTemplate.<String, String>opsForHash()
-                    .entries(key)
-                    .entrySet().stream()
-                    .sorted(Comparator.comparingInt(e -> Integer.parseInt(e.getKey())))
-                    .map(Map.Entry::getValue)
-                    .collect(Collectors.toList());
+    private void requireDirectUploads() {
+        if (!directUploadsEnabled) {
+            throw new IllegalStateException("Direct uploads are disabled");
+        }
+    }
 
-            log.info("[mergeChunks] Found {} chunks in Redis for uploadId={}", chunkObjects.size(), uploadId);
+    /**
+     * Runs the merge as a checkpointed state machine: DOWNLOADED (chunks concatenated into the
+     * staging file, hash known), MERGED (final bytes ready; for videos, the transcoded output),
+     * STORED (object and file row written) and INDEXED (category and video row written). Each
+     * checkpoint is committed on {@link UploadStatus}, so a redelivered event resumes after the
+     * last completed stage. Chunks are only deleted once the upload is INDEXED.
+     */
+    public void mergeChunksAndSaveFile(String uploadId, String fileName) throws IOException {
+        UploadStatus status = getUploadStatus(uploadId);
+
+        // Upload events are delivered at least once; a redelivery after the upload finished is a no-op
+        if (status.getStatus() == UploadStatus.Status.COMPLETED
+                || status.getStatus() == UploadStatus.Status.CANCELLED) {
+            log.info("[mergeChunks] Skipping uploadId={}, already {}", uploadId, status.getStatus());
+            return;
+        }
 
-            List<Path> chunkPaths = new ArrayList<>();
-            for (String chunkObject : chunkObjects) {
-                log.info("[mergeChunks] Downloading chunk {} from MinIO", chunkObject);
-                Path tempChunk = Files.createTempFile(uploadId + "_chunk_", ".part");
-                try (InputStream is = minioClient.getObject(
-                        GetObjectArgs.builder().bucket(CHUNK_BUCKET).object(chunkObject).build());
-                    OutputStream os = Files.newOutputStream(tempChunk)) {
-                    is.transferTo(os);
+        try {
+            log.info("[mergeChunks] Starting merge for uploadId={}, fileName={}, checkpoint={}",
+                    uploadId, fileName, status.getMergeStage());
+            Map<String, Long> timings = new LinkedHashMap<>();
+
+            if (!reached(status, MergeStage.STORED)) {
+                if (isVideo(fileName) && transcodeInFlight(uploadId)) {
+                    log.info("[mergeChunks] uploadId={} is already being transcoded, nothing to resume", uploadId);
+                    return;
+                }
+                status = mergeAndStore(status, fileName, timings);
+                if (status == null) {
+                    return;
                 }
-                chunkPaths.add(tempChunk);
             }
+            completeMerge(status, fileName, timings);
 
-            // 2. Merge chunks
-            Path finalFile;
-            if (isVideo(fileName)) {
-                log.info("[mergeChunks] File is video, preparing FFmpeg merge");
-                Path concatFile = Files.createTempFile(uploadId + "_concat", ".txt");
-                List<String> lines = chunkPaths.stream()
-                        .map(p -> "file '" + p.toAbsolutePath().toString().replace("\\", "/") + "'")
-                        .collect(Collectors.toList());
-                Files.write(concatFile, lines, StandardOpenOption.WRITE);
-
-                finalFile = Files.createTempFile(uploadId + "_merged", ".mp4");
-
-                // Run FFmpeg
-                log.info("[mergeChunks] Running FFmpeg for uploadId={}", uploadId);
-                ProcessBuilder pb = new ProcessBuilder(
-                    "ffmpeg", "-y", "-f", "concat", "-safe", "0",
-                    "-i", concatFile.toAbsolutePath().toString(),
-                    "-c:v", "libx264",
-                    "-c:a", "aac",
-                    "-strict", "experimental",
-                    finalFile.toAbsolutePath().toString()
-                );
-                pb.inheritIO();
-                Process process = pb.start();
-                int exitCode = process.waitFor();
-                if (exitCode != 0) {
-                    log.error("[mergeChunks] FFmpeg merge failed with exitCode={} for uploadId={}", exitCode, uploadId);
-                    throw new IllegalStateException("FFmpeg merge failed for uploadId=" + uploadId);
-                }
-                log.info("[mergeChunks] FFmpeg merge completed for uploadId={}", uploadId);
+        } catch (DuplicateFileException e) {
+            log.info("[mergeChunks] uploadId={} duplicates a stored file: {}", uploadId, e.getMessage());
+            releaseClaim(status);
+            uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.DUPLICATE);
 
-                Files.delete(concatFile);
-            } else {
-                log.info("[mergeChunks] Non-video file, performing simple merge");
-                finalFile = Files.createTempFile(uploadId + "_merged", ".bin");
-                try (OutputStream os = Files.newOutputStream(finalFile)) {
-                    for (Path chunkPath : chunkPaths) {
-                        Files.copy(chunkPath, os);
-                    }
-                }
+        } catch (Exception e) {
+            log.error("[mergeChunks] Merge failed for uploadId={}, error={}", uploadId, e.getMessage(), e);
+            // Other failures are retried by the consumer and stay PROCESSING until it gives up
+            if (e instanceof HashMismatchException) {
+                releaseClaim(status);
+                uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.FAILED);
             }
+            throw new IllegalStateException(
+                    "Failed to merge chunks for uploadId=" + uploadId +
+                            ", fileName=" + fileName +
+                            ": " + e.getMessage(),
+                    e
+            );
+        }
+    }
+
+    // Returns null when the upload was handed to the transcode scheduler, which finishes it later
+    private UploadStatus mergeAndStore(UploadStatus status, String fileName, Map<String, Long> timings) throws Exception {
+        String uploadId = status.getUploadId();
 
-            // 3. Cleanup chunks from MinIO and Redis
-            for (String chunkObject : chunkObjects) {
-                log.info("[mergeChunks] Deleting chunk {} from MinIO", chunkObject);
-                minioClient.removeObject(RemoveObjectArgs.builder().bucket(CHUNK_BUCKET).object(chunkObject).build());
+        // Compose needs whole chunk objects, while chunked storage needs to read the bytes itself
+        if (status.getMergeStage() == null && composeMergeEnabled && !isVideo(fileName)
+                && !fileService.usesChunkedStorage(FileCategory.FILE)) {
+            List<ChunkRecord> chunkRecords = getChunkRecords(uploadId, getChunkObjects(uploadId));
+            if (canCompose(chunkRecords)) {
+                return composeChunks(status, fileName, chunkRecords);
             }
-            redisTemplate.delete(key);
-            log.info("[mergeChunks] Deleted Redis key {}", key);
+            log.info("[mergeChunks] Chunks of uploadId={} cannot be composed server-side, falling back to local merge", uploadId);
+        }
 
-            // 4. Compute hash and check duplication
-            byte[] fileBytes = Files.readAllBytes(finalFile);
-            String hash = Util.computeHash(fileBytes);
-            log.info("[mergeChunks] Computed hash {} for uploadId={}", hash, uploadId);
+        // A video whose transcode finished but could not be stored resumes from the kept output
+        Path transcoded = transcodedFile(uploadId);
+        if (isVideo(fileName) && reached(status, MergeStage.MERGED) && Files.exists(transcoded)) {
+            log.info("[mergeChunks] Resuming uploadId={} from its transcoded output", uploadId);
+            status = storeFile(status, fileName, transcoded, FileCategory.VIDEO, timings);
+            Files.deleteIfExists(transcoded);
+            return status;
+        }
+
+        // 1. Download chunks in parallel and concatenate them in order, hashing the bytes on the way.
+        // The staging file has a fixed name, so a resume on the same node reuses it.
+        Path staging = stagingFile(uploadId);
+        if (!reached(status, MergeStage.DOWNLOADED) || !Files.exists(staging)) {
+            List<String> chunkObjects = getChunkObjects(uploadId);
+            log.info("[mergeChunks] Found {} chunks in Redis for uploadId={}", chunkObjects.size(), uploadId);
 
-            if (fileService.fileExists(hash)) {
-                log.warn("[mergeChunks] File already exists with hash={}", hash);
-                throw new IllegalStateException("File already exists with hash: " + hash);
+            String hash = timed("fetch", timings, () -> {
+                Files.createDirectories(staging.getParent());
+                MessageDigest digest = Util.newDigest();
+                try (OutputStream os = new DigestOutputStream(Files.newOutputStream(staging), digest)) {
+                    chunkDownloadPipeline.fetchInOrder(CHUNK_BUCKET, chunkObjects, uploadId, (index, chunk) -> {
+                        Files.copy(chunk, os);
+                        Files.delete(chunk);
+                    });
+                }
+                return Util.toHex(digest.digest());
+            });
+            log.info("[mergeChunks] Computed hash {} for uploadId={}", hash, uploadId);
+            if (status.getDeclaredHash() != null && !status.getDeclaredHash().equals(hash)) {
+                Files.deleteIfExists(staging);
+                throw new HashMismatchException(status.getDeclaredHash(), hash);
             }
+            status = checkpoint(uploadId, MergeStage.DOWNLOADED, locked -> locked.setHash(hash));
+        }
 
-            String contentType = Files.probeContentType(finalFile);
-            if (contentType == null) contentType = "application/octet-stream";
+        // 2. Check duplication before spending any FFmpeg time on the file. Nothing of this
+        // upload is stored yet, so any match is another upload's file.
+        if (fileService.fileExists(status.getHash())) {
+            log.warn("[mergeChunks] File already exists with hash={}", status.getHash());
+            Files.deleteIfExists(staging);
+            throw new DuplicateFileException(status.getHash());
+        }
 
-            FileEntity savedFile = fileService.saveFile(
-                    fileName,
-                    contentType,
-                    finalFile.toFile().length(),
-                    hash,
-                    finalFile.toFile()
-            );
+        // 3. Videos are handed to the transcode scheduler, which resumes the merge when its job completes
+        if (isVideo(fileName)) {
+            transcodeScheduler.submit(uploadId, fileName, status.getHash(), staging);
+            log.info("[mergeChunks] Queued uploadId={} for transcoding, stage timings (ms)={}", uploadId, timings);
+            return null;
+        }
+
+        status = checkpoint(uploadId, MergeStage.MERGED, locked -> { });
+        status = storeFile(status, fileName, staging, FileCategory.FILE, timings);
+        Files.deleteIfExists(staging);
+        return status;
+    }
+
+    /**
+     * Stores the transcoded video and completes the upload. The job is already finished when this
+     * runs, so a re-driven merge does not see it in flight. The upload event was acked when the
+     * job was queued, so a failure here must re-drive the merge itself: the output is kept in the
+     * merge work dir and the event is published again, and the retry resumes from MERGED.
+     */
+    @EventListener
+    public void onTranscodeCompleted(TranscodeJobCompletedEvent event) throws Exception {
+        TranscodeJob job = event.job();
+        String uploadId = job.getUploadId();
+        UploadStatus status = getUploadStatus(uploadId);
+        if (status.getStatus() == UploadStatus.Status.COMPLETED) {
+            return;
+        }
+        Map<String, Long> timings = new LinkedHashMap<>();
+
+        try {
+            status = checkpoint(uploadId, MergeStage.MERGED, locked -> { });
+            status = storeFile(status, job.getFileName(), event.output(), FileCategory.VIDEO, timings);
+            completeMerge(status, job.getFileName(), timings);
+
+        } catch (DuplicateFileException e) {
+            log.warn("[mergeChunks] Transcoded uploadId={} duplicates a stored file: {}", uploadId, e.getMessage());
+            releaseClaim(status);
+            uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.DUPLICATE);
+
+        } catch (Exception e) {
+            log.error("[mergeChunks] Storing transcoded uploadId={} failed, retrying the merge: {}",
+                    uploadId, e.getMessage(), e);
+            keepTranscodedOutput(uploadId, event.output());
+            transcodeScheduler.markOutputNotStored(job, e.getMessage());
+            uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.PROCESSING);
+            fileUploadProducer.sendUploadCompleted(uploadId, job.getFileName());
+        }
+    }
+
+    // A retry on another node finds no kept output and transcodes again from the chunks
+    private void keepTranscodedOutput(String uploadId, Path output) {
+        try {
+            Path kept = transcodedFile(uploadId);
+            Files.createDirectories(kept.getParent());
+            Files.move(output, kept, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("[mergeChunks] Could not keep transcoded output of uploadId={}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    // 4. The object name is derived from the uploadId, so storing again after a crash overwrites
+    // the same object, and the file row is written in the same transaction as the STORED checkpoint
+    private UploadStatus storeFile(UploadStatus status, String fileName, Path finalFile, FileCategory category,
+                                   Map<String, Long> timings) throws Exception {
+        if (reached(status, MergeStage.STORED)) {
+            return status;
+        }
+        String objectName = objectName(status.getUploadId(), fileName);
+        String probedType = Files.probeContentType(finalFile);
+        String contentType = probedType != null ? probedType : "application/octet-stream";
+        long size = Files.size(finalFile);
+        String hash = status.getHash();
+
+        if (fileService.usesChunkedStorage(category)) {
+            List<ContentStore.ChunkRef> chunks = timed("store", timings, () -> fileService.uploadChunks(finalFile));
+            return checkpoint(status.getUploadId(), MergeStage.STORED, locked -> {
+                FileEntity savedFile = fileService.registerChunkedFile(fileName, contentType, size, hash, chunks, category);
+                locked.setFileId(savedFile.getId());
+                log.info("[mergeChunks] Saved file {} as {} content chunks with ID={}", fileName, chunks.size(), savedFile.getId());
+            });
+        }
+
+        timed("store", timings, () -> {
+            fileService.putFile(objectName, contentType, finalFile.toFile());
+            return null;
+        });
+
+        return checkpoint(status.getUploadId(), MergeStage.STORED, locked -> {
+            FileEntity savedFile = fileService.registerFile(fileName, contentType, size, hash, objectName, category);
+            locked.setFileId(savedFile.getId());
             log.info("[mergeChunks] Saved file {} with ID={}", fileName, savedFile.getId());
-            VideoEntity savedVideo = null;
-
-            // 5. Categorize file and trigger video service if needed
-            if (isVideo(fileName)) {
-                savedFile.setCategory(FileCategory.VIDEO);
-                savedFile = fileService.save(savedFile);
-                savedVideo = videoService.createPendingVideo(savedFile);
-                log.info("[mergeChunks] Created pending video for file ID={}", savedFile.getId());
+        });
+    }
+
+    // 5. Create the video row, then 6. clean up chunks and finish
+    private void completeMerge(UploadStatus status, String fileName, Map<String, Long> timings) throws Exception {
+        String uploadId = status.getUploadId();
+
+        if (!reached(status, MergeStage.INDEXED)) {
+            Long fileId = status.getFileId();
+            status = checkpoint(uploadId, MergeStage.INDEXED, locked -> {
+                FileEntity file = fileService.getFile(fileId);
+                if (file.getCategory() == FileCategory.VIDEO) {
+                    VideoEntity video = videoService.createPendingVideo(file);
+                    locked.setVideoId(video.getId());
+                    log.info("[mergeChunks] Created pending video for file ID={}", fileId);
+                }
+            });
+        }
+
+        if (hlsEnabled && status.getVideoId() != null
+                && transcodeScheduler.findJob(uploadId, TranscodeJob.Type.HLS_LADDER).isEmpty()) {
+            transcodeScheduler.submitHlsLadder(uploadId, videoService.getVideo(status.getVideoId()));
+        }
+
+        // Deleting chunks and keys is idempotent, so a crash from here on only repeats this step.
+        // The claim goes last: once it is gone, new uploads of this content find the stored file.
+        discardChunks(uploadId);
+        releaseClaim(status);
+
+        uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.COMPLETED);
+        log.info("[mergeChunks] Merge of {} completed successfully for uploadId={}, stage timings (ms)={}",
+                fileName, uploadId, timings);
+    }
+
+    /**
+     * Moves the upload to {@code stage} under a row lock, running {@code update} in the same
+     * transaction. If another delivery already got there, the update is skipped.
+     */
+    private UploadStatus checkpoint(String uploadId, MergeStage stage, Consumer<UploadStatus> update) {
+        return transactionTemplate.execute(tx -> {
+            UploadStatus locked = uploadStatusRepository.findForUpdate(uploadId)
+                    .orElseThrow(() -> new IllegalStateException("Invalid uploadId"));
+            if (reached(locked, stage)) {
+                return locked;
+            }
+            update.accept(locked);
+            locked.setMergeStage(stage);
+            return uploadStatusRepository.save(locked);
+        });
+    }
+
+    private static boolean reached(UploadStatus status, MergeStage stage) {
+        return status.getMergeStage() != null && status.getMergeStage().compareTo(stage) >= 0;
+    }
+
+    private boolean transcodeInFlight(String uploadId) {
+        return transcodeScheduler.findJob(uploadId)
+                .map(job -> job.getStatus() == TranscodeJob.Status.QUEUED
+                        || job.getStatus() == TranscodeJob.Status.RUNNING)
+                .orElse(false);
+    }
+
+    private Path stagingFile(String uploadId) {
+        return Path.of(mergeWorkDir).resolve(uploadId + "_merged.bin");
+    }
+
+    private Path transcodedFile(String uploadId) {
+        return Path.of(mergeWorkDir).resolve(uploadId + "_transcoded.mp4");
+    }
+
+    // uploadIds are UUIDs, so this keeps the existing uuid_fileName layout while being stable across retries
+    static String objectName(String uploadId, String fileName) {
+        return uploadId + "_" + fileName;
+    }
+
+    /**
+     * Chunks PUT straight to MinIO never pass through {@link #saveChunk}, so they are recorded
+     * from the bucket listing once the client completes, with the sizes the listing reports so
+     * they can be composed like any other chunk.
+     */
+    private void registerDirectChunks(String uploadId) throws Exception {
+        List<String> triples = new ArrayList<>();
+        List<String> oversized = new ArrayList<>();
+        Iterable<Result<Item>> results = minioClient.listObjects(
+                ListObjectsArgs.builder().bucket(CHUNK_BUCKET).prefix(uploadId + "/").recursive(true).build());
+        for (Result<Item> result : results) {
+            Item item = result.get();
+            String objectName = item.objectName();
+            String chunkNumber = objectName.substring(objectName.lastIndexOf('_') + 1);
+            int number = parseChunkNumber(chunkNumber);
+            if (number <= 0 || number > MAX_CHUNKS || !objectName.equals(chunkObjectName(uploadId, number))) {
+                continue;
+            }
+            if (item.size() > maxDirectChunkSize.toBytes()) {
+                oversized.add(objectName);
             } else {
-                savedFile.setCategory(FileCategory.FILE);
-                savedFile = fileService.save(savedFile);
+                triples.addAll(List.of(chunkNumber, objectName, String.valueOf(item.size())));
             }
+        }
+        // Removed so the client can upload them again within the limit
+        if (!oversized.isEmpty()) {
+            removeChunkObjects(oversized);
+            throw new IllegalArgumentException("Chunks larger than " + maxDirectChunkSize + ": " + oversized);
+        }
+        if (triples.isEmpty()) {
+            return;
+        }
+        long added = registerChunks(uploadId, triples);
+        log.info("[completeUpload] Registered {} directly uploaded chunks for uploadId={}", added, uploadId);
+    }
 
-            status.setStatus(UploadStatus.Status.COMPLETED);
-            uploadStatusRepository.save(status);
-            log.info("[mergeChunks] Merge completed successfully for uploadId={}", uploadId);
+    private static int parseChunkNumber(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 
-            // 6. Cleanup temp files
-            for (Path p : chunkPaths) Files.deleteIfExists(p);
-            Files.deleteIfExists(finalFile);
-            videoIndexService.indexVideo(savedVideo);
+    private static String chunkObjectName(String uploadId, int chunkNumber) {
+        return uploadId + "/chunk_" + chunkNumber;
+    }
 
-            return savedFile;
+    public void cancelUpload(String uploadId) throws Exception {
+        UploadStatus status = getUploadStatus(uploadId);
+        if (status.getStatus() == UploadStatus.Status.COMPLETED
+                || status.getStatus() == UploadStatus.Status.FAILED
+                || status.getStatus() == UploadStatus.Status.CANCELLED) {
+            throw new IllegalStateException("Upload " + uploadId + " is already " + status.getStatus());
+        }
 
-        } catch (Exception e) {
-            log.error("[mergeChunks] Merge failed for uploadId={}, error={}", uploadId, e.getMessage(), e);
-            status.setStatus(UploadStatus.Status.FAILED);
-            uploadStatusRepository.save(status);
-            throw new IllegalStateException(
-                    "Failed to merge chunks for uploadId=" + uploadId +
-                            ", fileName=" + fileName +
-                            ": " + e.getMessage(),
-                    e
-            );
+        if (!transcodeScheduler.cancel(uploadId)) {
+            uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.CANCELLED);
         }
+
+        discardChunks(uploadId);
+        releaseClaim(status);
+        log.info("[cancelUpload] Cancelled uploadId={}", uploadId);
+    }
+
+    private void discardChunks(String uploadId) throws Exception {
+        removeChunkObjects(getChunkObjects(uploadId));
+        redisTemplate.delete(chunkKeys(uploadId));
+        log.info("[mergeChunks] Deleted Redis keys {}", chunkKeys(uploadId));
+    }
+
+    public Optional<TranscodeJob> getTranscodeJob(String uploadId) {
+        return transcodeScheduler.findJob(uploadId);
+    }
+
+    private List<String> getChunkObjects(String uploadId) {
+        return redisTemplate.<String, String>opsForHash()
+                .entries(CHUNK_KEY_PREFIX + uploadId)
+                .entrySet().stream()
+                .sorted(Comparator.comparingInt(e -> Integer.parseInt(e.getKey())))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+    }
+
+    @FunctionalInterface
+    private interface Stage<T> {
+        T run() throws Exception;
+    }
+
+    private <T> T timed(String stage, Map<String, Long> timings, Stage<T> action) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return action.run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            meterRegistry.timer("upload.merge.stage", "stage", stage).record(elapsed, TimeUnit.NANOSECONDS);
+            timings.put(stage, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    private record ChunkRecord(String objectName, long size) {
+    }
+
+    // Chunks without a recorded size (e.g. registered before sizes were tracked) yield a size of -1
+    private List<ChunkRecord> getChunkRecords(String uploadId, List<String> chunkObjects) {
+        Map<String, String> sizes = redisTemplate.<String, String>opsForHash()
+                .entries(CHUNK_KEY_PREFIX + uploadId + CHUNK_SIZES_SUFFIX);
+
+        List<ChunkRecord> records = new ArrayList<>(chunkObjects.size());
+        for (String chunkObject : chunkObjects) {
+            String chunkNumber = chunkObject.substring(chunkObject.lastIndexOf('_') + 1);
+            String recorded = sizes.get(chunkNumber);
+            records.add(new ChunkRecord(chunkObject, recorded != null ? Long.parseLong(recorded) : -1));
+        }
+        return records;
+    }
+
+    // S3 compose requires every source but the last to be at least 5 MiB
+    private boolean canCompose(List<ChunkRecord> records) {
+        if (records.isEmpty() || records.size() > MAX_COMPOSE_SOURCES) {
+            return false;
+        }
+        for (int i = 0; i < records.size(); i++) {
+            long size = records.get(i).size();
+            if (size < 0 || (i < records.size() - 1 && size < MIN_COMPOSE_PART_SIZE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private UploadStatus composeChunks(UploadStatus status, String fileName, List<ChunkRecord> records) throws Exception {
+        String uploadId = status.getUploadId();
+
+        // 1. Hash the chunk objects in order, so the file gets the same flat SHA-256 as every
+        // other merge path regardless of how the client chunked it. This downloads the bytes once
+        // but skips the local staging file and the upload of the merged object.
+        String hash = hashChunkObjects(uploadId, records);
+        long size = records.stream().mapToLong(ChunkRecord::size).sum();
+        log.info("[mergeChunks] Computed hash {} for uploadId={}", hash, uploadId);
+
+        if (status.getDeclaredHash() != null && !status.getDeclaredHash().equals(hash)) {
+            throw new HashMismatchException(status.getDeclaredHash(), hash);
+        }
+        if (fileService.fileExists(hash)) {
+            log.warn("[mergeChunks] File already exists with hash={}", hash);
+            throw new DuplicateFileException(hash);
+        }
+
+        // 2. Stitch the chunk objects together inside MinIO
+        List<ComposeSource> sources = records.stream()
+                .map(r -> ComposeSource.builder().bucket(CHUNK_BUCKET).object(r.objectName()).build())
+                .toList();
+        String contentType = URLConnection.guessContentTypeFromName(fileName);
+        String resolvedType = contentType != null ? contentType : "application/octet-stream";
+        String objectName = objectName(uploadId, fileName);
+
+        fileService.composeObject(objectName, resolvedType, sources);
+        log.info("[mergeChunks] Composed {} chunks into {} for uploadId={}", records.size(), objectName, uploadId);
+
+        return checkpoint(uploadId, MergeStage.STORED, locked -> {
+            FileEntity savedFile = fileService.registerFile(fileName, resolvedType, size, hash, objectName, FileCategory.FILE);
+            locked.setHash(hash);
+            locked.setFileId(savedFile.getId());
+        });
+    }
+
+    private String hashChunkObjects(String uploadId, List<ChunkRecord> records) throws IOException {
+        MessageDigest digest = Util.newDigest();
+        try (OutputStream sink = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            List<String> chunkObjects = records.stream().map(ChunkRecord::objectName).toList();
+            chunkDownloadPipeline.fetchInOrder(CHUNK_BUCKET, chunkObjects, uploadId, (index, chunk) -> {
+                Files.copy(chunk, sink);
+                Files.delete(chunk);
+            });
+        }
+        return Util.toHex(digest.digest());
+    }
+
+    // removeObjects is lazy: errors are only reported, and deletes only issued, while iterating the results
+    private void removeChunkObjects(List<String> chunkObjects) throws Exception {
+        List<DeleteObject> objects = chunkObjects.stream().map(DeleteObject::new).toList();
+        Iterable<Result<DeleteError>> results = minioClient.removeObjects(
+                RemoveObjectsArgs.builder().bucket(CHUNK_BUCKET).objects(objects).build());
+        for (Result<DeleteError> result : results) {
+            DeleteError error = result.get();
+            log.warn("[mergeChunks] Failed to delete chunk {}: {}", error.objectName(), error.message());
+        }
+        log.info("[mergeChunks] Deleted {} chunks from MinIO", chunkObjects.size());
+    }
+
+    // Called once the upload event's retries are exhausted; an upload that finished meanwhile keeps its status
+    public void failUpload(String uploadId) {
+        uploadStatusRepository.findByUploadId(uploadId).ifPresent(status -> {
+            if (status.getStatus() == UploadStatus.Status.COMPLETED
+                    || status.getStatus() == UploadStatus.Status.DUPLICATE
+                    || status.getStatus() == UploadStatus.Status.CANCELLED) {
+                return;
+            }
+            releaseClaim(status);
+            uploadStatusRepository.updateStatus(uploadId, UploadStatus.Status.FAILED);
+        });
     }
 
     public UploadStatus getUploadStatus(String uploadId) {
@@ -256,11 +883,41 @@ public class ChunkUploadService {
     }
 
     public List<Integer> getUploadedChunks(String uploadId) {
-    String key = CHUNK_KEY_PREFIX + uploadId;
-    return redisTemplate.<String, String>opsForHash()
-            .keys(key).stream()
-            .map(Integer::valueOf)
-            .sorted()
-            .collect(Collectors.toList());
+        byte[] bitmap = readChunkBitmap(uploadId);
+        List<Integer> uploaded = new ArrayList<>();
+        int bits = Math.min(bitmap.length * 8, MAX_CHUNKS + 1);
+        for (int chunk = 0; chunk < bits; chunk++) {
+            if (isSet(bitmap, chunk)) {
+                uploaded.add(chunk);
+            }
+        }
+        return uploaded;
+    }
+
+    // Chunk numbers start at 1; anything in [1, totalChunks] without its bit set is missing
+    public List<Integer> getMissingChunks(String uploadId, int totalChunks) {
+        if (totalChunks <= 0 || totalChunks > MAX_CHUNKS) {
+            throw new IllegalArgumentException("totalChunks must be between 1 and " + MAX_CHUNKS);
+        }
+        byte[] bitmap = readChunkBitmap(uploadId);
+        List<Integer> missing = new ArrayList<>();
+        for (int chunk = 1; chunk <= totalChunks; chunk++) {
+            if (!isSet(bitmap, chunk)) {
+                missing.add(chunk);
+            }
+        }
+        return missing;
+    }
+
+    private byte[] readChunkBitmap(String uploadId) {
+        byte[] key = (CHUNK_KEY_PREFIX + uploadId + CHUNK_BITMAP_SUFFIX).getBytes(StandardCharsets.UTF_8);
+        byte[] bitmap = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+        return bitmap != null ? bitmap : new byte[0];
+    }
+
+    // SETBIT numbers bits from the most significant bit of the first byte
+    private static boolean isSet(byte[] bitmap, int offset) {
+        int index = offset >>> 3;
+        return index < bitmap.length && (bitmap[index] & (0x80 >>> (offset & 7))) != 0;
     }
 }
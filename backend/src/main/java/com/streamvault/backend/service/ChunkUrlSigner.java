@@ -0,0 +1,56 @@
+package com.streamvault.backend.service;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.http.Method;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Signs chunk PUT URLs for clients that upload straight to MinIO. Signatures cover the host,
+ * so this uses its own client on the endpoint clients can reach, which inside Docker differs
+ * from the one the backend talks to. Signing is local: the fixed region avoids a bucket
+ * location lookup, so no request is sent to MinIO.
+ */
+@Component
+public class ChunkUrlSigner {
+
+    private final MinioClient signingClient;
+    private final Duration expiry;
+
+    public ChunkUrlSigner(
+            @Value("${minio.public-endpoint:${minio.endpoint}}") String publicEndpoint,
+            @Value("${minio.access-key}") String accessKey,
+            @Value("${minio.secret-key}") String secretKey,
+            @Value("${minio.region:us-east-1}") String region,
+            @Value("${upload.direct.url-expiry:1h}") Duration expiry) {
+        this.signingClient = MinioClient.builder()
+                .endpoint(publicEndpoint)
+                .credentials(accessKey, secretKey)
+                .region(region)
+                .build();
+        this.expiry = expiry;
+    }
+
+    public String presignPut(String bucket, String objectName) {
+        try {
+            return signingClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.PUT)
+                            .bucket(bucket)
+                            .object(objectName)
+                            .expiry((int) expiry.toSeconds())
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to presign " + objectName + ": " + e.getMessage(), e);
+        }
+    }
+
+    public Duration getExpiry() {
+        return expiry;
+    }
+}
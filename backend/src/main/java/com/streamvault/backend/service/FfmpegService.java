@@ -0,0 +1,178 @@
+package com.streamvault.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.DoubleConsumer;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FfmpegService {
+
+    // Codecs every mainstream browser plays from an MP4 container
+    private static final Set<String> STREAMABLE_VIDEO_CODECS = Set.of("h264");
+    private static final Set<String> STREAMABLE_AUDIO_CODECS = Set.of("aac", "mp3");
+
+    private static final String OUT_TIME_KEY = "out_time_us=";
+    private static final int HLS_AUDIO_KBPS = 128;
+
+    private final ObjectMapper objectMapper;
+
+    public record ProbeResult(String videoCodec, String audioCodec, Integer width, Integer height, Double durationSeconds) {
+
+        public boolean streamCopyable() {
+            return videoCodec != null
+                    && STREAMABLE_VIDEO_CODECS.contains(videoCodec)
+                    && (audioCodec == null || STREAMABLE_AUDIO_CODECS.contains(audioCodec));
+        }
+    }
+
+    public ProbeResult probe(Path input) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(
+                "ffprobe", "-v", "error",
+                "-show_entries", "stream=codec_type,codec_name,width,height:format=duration",
+                "-of", "json",
+                input.toAbsolutePath().toString()
+        );
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+
+        JsonNode root;
+        try (InputStream stdout = process.getInputStream()) {
+            root = objectMapper.readTree(stdout);
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || root == null) {
+            throw new IllegalStateException("ffprobe failed with exitCode=" + exitCode + " for " + input);
+        }
+
+        String videoCodec = null;
+        String audioCodec = null;
+        Integer width = null;
+        Integer height = null;
+        for (JsonNode stream : root.path("streams")) {
+            String type = stream.path("codec_type").asText();
+            if ("video".equals(type) && videoCodec == null) {
+                videoCodec = stream.path("codec_name").asText(null);
+                width = stream.hasNonNull("width") ? stream.get("width").asInt() : null;
+                height = stream.hasNonNull("height") ? stream.get("height").asInt() : null;
+            } else if ("audio".equals(type) && audioCodec == null) {
+                audioCodec = stream.path("codec_name").asText(null);
+            }
+        }
+        JsonNode duration = root.path("format").path("duration");
+        return new ProbeResult(videoCodec, audioCodec, width, height, duration.isMissingNode() ? null : duration.asDouble());
+    }
+
+    public enum Mode {
+        // Rewrites the container only: no decoding, just moves the moov atom to the front for progressive playback
+        REMUX,
+        TRANSCODE
+    }
+
+    public Process start(Mode mode, Path input, Path output, int threads) throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                "ffmpeg", "-y", "-nostats", "-progress", "pipe:1",
+                "-i", input.toAbsolutePath().toString()
+        ));
+        if (mode == Mode.REMUX) {
+            command.addAll(List.of("-c", "copy"));
+        } else {
+            command.addAll(List.of("-c:v", "libx264", "-c:a", "aac", "-threads", String.valueOf(threads)));
+        }
+        command.addAll(List.of("-movflags", "+faststart", output.toAbsolutePath().toString()));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return pb.start();
+    }
+
+    /**
+     * Encodes one HLS rendition as fMP4 (CMAF) segments into {@code outputDir}: an
+     * {@code index.m3u8} variant playlist, {@code init.mp4} and {@code seg_NNNNN.m4s} files.
+     * Keyframes are forced on segment boundaries so every rendition switches cleanly.
+     */
+    public Process startHls(Path input, Path outputDir, int height, int videoKbps, int segmentSeconds, int threads)
+            throws IOException {
+        List<String> command = List.of(
+                "ffmpeg", "-y", "-nostats", "-progress", "pipe:1",
+                "-i", input.toAbsolutePath().toString(),
+                "-map", "0:v:0", "-map", "0:a:0?",
+                "-vf", "scale=-2:" + height,
+                "-c:v", "libx264", "-preset", "veryfast", "-profile:v", "main", "-level:v", hlsLevel(height),
+                "-b:v", videoKbps + "k",
+                "-maxrate", (videoKbps * 107 / 100) + "k",
+                "-bufsize", (videoKbps * 2) + "k",
+                "-force_key_frames", "expr:gte(t,n_forced*" + segmentSeconds + ")",
+                "-sc_threshold", "0",
+                "-c:a", "aac", "-b:a", HLS_AUDIO_KBPS + "k", "-ac", "2",
+                "-threads", String.valueOf(threads),
+                "-f", "hls",
+                "-hls_time", String.valueOf(segmentSeconds),
+                "-hls_playlist_type", "vod",
+                "-hls_segment_type", "fmp4",
+                "-hls_fmp4_init_filename", "init.mp4",
+                "-hls_segment_filename", outputDir.resolve("seg_%05d.m4s").toAbsolutePath().toString(),
+                outputDir.resolve("index.m3u8").toAbsolutePath().toString()
+        );
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return pb.start();
+    }
+
+    // The level is pinned so the master playlist can name it: 4.2 covers 1080p60, 5.2 covers 2160p60
+    private static String hlsLevel(int height) {
+        return height <= 1080 ? "4.2" : "5.2";
+    }
+
+    // RFC 6381 codec string of a rendition from startHls, as advertised by the master playlist CODECS
+    // attribute: H.264 Main (x264 sets constraint_set1) at the pinned level, plus AAC-LC if there is audio
+    public static String hlsCodecs(int height, boolean audio) {
+        String video = "avc1.4D40" + (height <= 1080 ? "2A" : "34");
+        return audio ? video + ",mp4a.40.2" : video;
+    }
+
+    // Peak bitrate of a rendition including audio, as advertised by the master playlist BANDWIDTH attribute
+    public static int peakKbps(int videoKbps) {
+        return videoKbps * 107 / 100 + HLS_AUDIO_KBPS;
+    }
+
+    /**
+     * Waits for an FFmpeg process started by {@link #start}, reporting the output
+     * position in seconds from its {@code -progress} key=value stream.
+     */
+    public void await(Process process, DoubleConsumer onProgress) throws IOException, InterruptedException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(OUT_TIME_KEY)) {
+                    String value = line.substring(OUT_TIME_KEY.length());
+                    if (!value.equals("N/A")) {
+                        onProgress.accept(Long.parseLong(value) / 1_000_000.0);
+                    }
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("FFmpeg failed with exitCode=" + exitCode);
+        }
+    }
+}
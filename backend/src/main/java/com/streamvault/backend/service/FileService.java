@@ -1,43 +1,97 @@
 package com.streamvault.backend.service;
 
+import com.streamvault.backend.cache.VideoSegmentCache;
+import com.streamvault.backend.dto.ByteRange;
 import com.streamvault.backend.dto.StreamedFile;
+import com.streamvault.backend.exception.DuplicateFileException;
 import com.streamvault.backend.model.FileEntity;
 import com.streamvault.backend.repository.FileRepository;
+import com.streamvault.backend.storage.ContentStore;
+import com.streamvault.backend.storage.FileHashIndex;
+import com.streamvault.backend.util.HttpRangeParser;
 import com.streamvault.backend.util.Util;
 
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
 import io.minio.GetObjectArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+import org.hibernate.exception.ConstraintViolationException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileService {
 
     private final FileRepository fileRepository;
     private final MinioClient minioClient;
+    private final VideoSegmentCache segmentCache;
+    private final ContentStore contentStore;
+    private final FileHashIndex fileHashIndex;
     private static final String FILE_BUCKET = "files";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${streaming.open-range-window:4MB}")
+    private DataSize openRangeWindow;
 
     public FileEntity save(FileEntity file) {
         return fileRepository.save(file);
     }
 
+    public FileEntity getFile(Long id) {
+        return fileRepository.findById(id)
+                .orElseThrow(() -> new IllegalStateException("File not found: " + id));
+    }
+
     public FileEntity saveFile(String fileName, String fileType, Long size, String hash, File file) throws IOException {
+        if (usesChunkedStorage(FileEntity.FileCategory.FILE)) {
+            return registerChunkedFile(fileName, fileType, size, hash,
+                    uploadChunks(file.toPath()), FileEntity.FileCategory.FILE);
+        }
         String objectName = UUID.randomUUID() + "_" + fileName;
+        putFile(objectName, fileType, file);
+        return registerFile(fileName, fileType, size, hash, objectName, FileEntity.FileCategory.FILE);
+    }
+
+    // Writing the same objectName again overwrites the object, so callers may retry with a stable name
+    public void putFile(String objectName, String fileType, File file) throws IOException {
         try (FileInputStream fis = new FileInputStream(file)) {
             minioClient.putObject(
                     PutObjectArgs.builder()
@@ -50,7 +104,89 @@ public class FileService {
         } catch (Exception e) {
             throw new IOException("Failed to upload to MinIO" + e.getMessage());
         }
+    }
+
+    public void composeObject(String objectName, String fileType, List<ComposeSource> sources) throws IOException {
+        try {
+            minioClient.composeObject(
+                    ComposeObjectArgs.builder()
+                            .bucket(FILE_BUCKET)
+                            .object(objectName)
+                            .sources(sources)
+                            .headers(Map.of("Content-Type", fileType))
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new IOException("Failed to compose object in MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    // Transcoded videos keep one object each: HLS packaging and range reads of them favour whole objects
+    public boolean usesChunkedStorage(FileEntity.FileCategory category) {
+        return contentStore.isEnabled() && category == FileEntity.FileCategory.FILE;
+    }
+
+    public List<ContentStore.ChunkRef> uploadChunks(Path file) throws IOException {
+        return contentStore.upload(file);
+    }
+
+    public FileEntity registerChunkedFile(String fileName, String fileType, Long size, String hash,
+                                          List<ContentStore.ChunkRef> chunks, FileEntity.FileCategory category) {
+        try {
+            FileEntity saved = contentStore.register(FileEntity.builder()
+                    .fileName(fileName)
+                    .fileType(fileType)
+                    .size(size)
+                    .hash(hash)
+                    .category(category)
+                    .uploadedAt(LocalDateTime.now())
+                    .build(), chunks);
+            fileHashIndex.add(hash);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw translateHashConflict(e, hash);
+        }
+    }
+
+    /**
+     * Inserts the file row. When another upload of the same content committed first, the unique
+     * hash index rejects the row; the object this upload stored is then removed and a
+     * {@link DuplicateFileException} is thrown, just as if the duplicate check had caught it.
+     */
+    public FileEntity registerFile(String fileName, String fileType, Long size, String hash, String objectName,
+                                   FileEntity.FileCategory category) {
+        try {
+            FileEntity saved = insertFile(fileName, fileType, size, hash, objectName, category);
+            fileHashIndex.add(hash);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            RuntimeException translated = translateHashConflict(e, hash);
+            if (translated instanceof DuplicateFileException) {
+                removeObjectQuietly(objectName);
+            }
+            throw translated;
+        }
+    }
 
+    private RuntimeException translateHashConflict(DataIntegrityViolationException e, String hash) {
+        if (e.getCause() instanceof ConstraintViolationException violation
+                && FileEntity.HASH_INDEX.equalsIgnoreCase(violation.getConstraintName())) {
+            log.info("[registerFile] Lost the insert race for hash={}", hash);
+            return new DuplicateFileException(hash);
+        }
+        return e;
+    }
+
+    private void removeObjectQuietly(String objectName) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(FILE_BUCKET).object(objectName).build());
+        } catch (Exception e) {
+            log.warn("[registerFile] Failed to remove {} from MinIO: {}", objectName, e.getMessage());
+        }
+    }
+
+    private FileEntity insertFile(String fileName, String fileType, Long size, String hash, String objectName,
+                                  FileEntity.FileCategory category) {
         return fileRepository.save(FileEntity.builder()
                 .fileName(fileName)
                 .fileType(fileType)
@@ -58,73 +194,235 @@ public class FileService {
                 .hash(hash)
                 .minioPath(objectName)
                 .bucket(FILE_BUCKET)
+                .category(category)
+                .storageLayout(FileEntity.StorageLayout.OBJECT)
                 .uploadedAt(LocalDateTime.now())
                 .build());
     }
 
     public FileEntity saveFileWithHash(MultipartFile multipartFile) throws IOException {
-        String hash = Util.computeHash(multipartFile.getBytes());
+        // Hash while spooling to the temp file, so the upload is read once and never held in memory
+        Path tempFile = Files.createTempFile("upload-", multipartFile.getOriginalFilename());
+        try {
+            MessageDigest digest = Util.newDigest();
+            try (InputStream is = new DigestInputStream(multipartFile.getInputStream(), digest)) {
+                Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = Util.toHex(digest.digest());
 
-        if (fileExists(hash)) {
-            throw new FileAlreadyExistsException("File already exists with hash: " + hash);
+            if (fileExists(hash)) {
+                throw new FileAlreadyExistsException("File already exists with hash: " + hash);
+            }
+
+            try {
+                return saveFile(
+                        multipartFile.getOriginalFilename(),
+                        multipartFile.getContentType(),
+                        multipartFile.getSize(),
+                        hash,
+                        tempFile.toFile()
+                );
+            } catch (DuplicateFileException e) {
+                throw new FileAlreadyExistsException(e.getMessage());
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
+    }
 
-        File tempFile = Files.createTempFile("upload-", multipartFile.getOriginalFilename()).toFile();
-        multipartFile.transferTo(tempFile);
+    public void downloadFile(FileEntity file, Path target) throws IOException {
+        if (file.getStorageLayout() == FileEntity.StorageLayout.CHUNKED) {
+            try (InputStream is = contentStore.open(file, 0, file.getSize())) {
+                Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return;
+        }
+        try (InputStream is = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(file.getBucket())
+                        .object(file.getMinioPath())
+                        .build())) {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to download " + file.getMinioPath() + " from MinIO: " + e.getMessage(), e);
+        }
+    }
 
-        FileEntity savedFile = saveFile(
-                multipartFile.getOriginalFilename(),
-                multipartFile.getContentType(),
-                multipartFile.getSize(),
-                hash,
-                tempFile
-        );
+    // Derived objects (e.g. HLS renditions) live next to the originals in the file bucket
+    public void storeObject(String objectName, InputStream in, long size, String contentType) throws IOException {
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(FILE_BUCKET)
+                            .object(objectName)
+                            .stream(in, size, -1)
+                            .contentType(contentType)
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new IOException("Failed to upload " + objectName + " to MinIO: " + e.getMessage(), e);
+        }
+    }
 
-        tempFile.delete();
-        return savedFile;
+    public StreamedFile streamObject(String objectName) throws IOException {
+        StatObjectResponse stat;
+        try {
+            stat = minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(FILE_BUCKET)
+                            .object(objectName)
+                            .build()
+            );
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new FileNotFoundException(objectName);
+            }
+            throw new IOException("Failed to stat " + objectName + " in MinIO: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IOException("Failed to stat " + objectName + " in MinIO: " + e.getMessage(), e);
+        }
+
+        StreamingResponseBody body = out -> {
+            try (InputStream is = minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(FILE_BUCKET)
+                            .object(objectName)
+                            .build())) {
+                transfer(is, out);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to stream " + objectName + " from MinIO: " + e.getMessage(), e);
+            }
+        };
+        return new StreamedFile(body, List.of(), stat.size(), stat.size(), stat.contentType(), false);
     }
 
     public boolean fileExists(String hash) {
-        return fileRepository.findByHash(hash).isPresent();
+        return findByHash(hash).isPresent();
+    }
+
+    // The hash filter answers "definitely new" without querying files
+    public Optional<FileEntity> findByHash(String hash) {
+        if (!fileHashIndex.mightExist(hash)) {
+            return Optional.empty();
+        }
+        Optional<FileEntity> file = fileRepository.findByHash(hash);
+        fileHashIndex.recordLookup(file.isPresent());
+        return file;
     }
 
     public StreamedFile streamFile(FileEntity file, String rangeHeader) throws Exception {
-        String bucket = file.getBucket();
-        String objectName = file.getMinioPath();
         long fileSize = file.getSize();
+        String contentType = file.getFileType();
 
-        long start = 0;
-        long end = fileSize - 1;
+        List<ByteRange> ranges = HttpRangeParser.parse(rangeHeader, fileSize, openRangeWindow.toBytes());
 
-        if (rangeHeader != null && rangeHeader.startsWith("bytes=")) {
-            String[] parts = rangeHeader.replace("bytes=", "").split("-");
-            start = Long.parseLong(parts[0]);
+        if (ranges.isEmpty()) {
+            ByteRange whole = new ByteRange(0, fileSize - 1);
+            return new StreamedFile(
+                    fileSize == 0 ? out -> { } : out -> writeRange(file, whole, out),
+                    List.of(whole),
+                    fileSize,
+                    whole.length(),
+                    contentType,
+                    false
+            );
+        }
 
-            if (parts.length > 1 && !parts[1].isEmpty()) {
-                end = Long.parseLong(parts[1]);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            return new StreamedFile(
+                    out -> writeRange(file, range, out),
+                    ranges,
+                    fileSize,
+                    range.length(),
+                    contentType,
+                    true
+            );
+        }
+
+        // multipart/byteranges: each part gets its own headers, and the total length is
+        // known upfront because the part headers are fixed-size strings.
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Range: bytes " + range.start() + "-" + range.end() + "/" + fileSize + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        StreamingResponseBody body = out -> {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                writeRange(file, ranges.get(i), out);
             }
+            out.write(closing);
+            out.flush();
+        };
+
+        return new StreamedFile(
+                body,
+                ranges,
+                fileSize,
+                contentLength,
+                "multipart/byteranges; boundary=" + boundary,
+                true
+        );
+    }
+
+    private void writeRange(FileEntity file, ByteRange range, OutputStream out) throws IOException {
+        if (segmentCache.isEnabled()) {
+            segmentCache.writeRange(file, range, out,
+                    (offset, length) -> readBytes(file, offset, length));
+            return;
         }
 
-        long contentLength = end - start + 1;
+        // Opens the MinIO object only once the response is being written and pipes it
+        // through a fixed-size buffer, so memory per viewer does not grow with the range.
+        try (InputStream is = openRange(file, range.start(), range.length())) {
+            transfer(is, out);
+        }
+    }
 
-        try (InputStream is = minioClient.getObject(
-                GetObjectArgs.builder()
-                        .bucket(bucket)
-                        .object(objectName)
-                        .offset(start)
-                        .length(contentLength)
-                        .build()
-        )) {
-            byte[] data = is.readAllBytes();
+    private byte[] readBytes(FileEntity file, long offset, int length) throws IOException {
+        try (InputStream is = openRange(file, offset, length)) {
+            return is.readNBytes(length);
+        }
+    }
 
-            return new StreamedFile(
-                    data,
-                    start,
-                    end,
-                    fileSize,
-                    file.getFileType(),
-                    rangeHeader != null // partial?
+    private InputStream openRange(FileEntity file, long offset, long length) throws IOException {
+        if (file.getStorageLayout() == FileEntity.StorageLayout.CHUNKED) {
+            return contentStore.open(file, offset, length);
+        }
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(file.getBucket())
+                            .object(file.getMinioPath())
+                            .offset(offset)
+                            .length(length)
+                            .build()
             );
+        } catch (Exception e) {
+            throw new IOException("Failed to stream " + file.getMinioPath() + " from MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    private void transfer(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
         }
+        out.flush();
     }
 }
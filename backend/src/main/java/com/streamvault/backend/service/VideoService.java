@@ -1,17 +1,31 @@
 package com.streamvault.backend.service;
 
+import com.streamvault.backend.config.CacheConfig;
+import com.streamvault.backend.dto.VideoListPage;
 import com.streamvault.backend.model.FileEntity;
 import com.streamvault.backend.model.VideoEntity;
 import com.streamvault.backend.dto.VideoProcessedRequest;
 import com.streamvault.backend.repository.VideoRepository;
+import com.streamvault.backend.search.SearchIndexer;
+import com.streamvault.backend.search.SearchResult;
+import com.streamvault.backend.search.VideoDocument;
 import com.streamvault.backend.search.VideoIndexService;
+import com.streamvault.backend.search.VideoSearchCriteria;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
-import org.springframework.data.domain.Page;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 @Slf4j
 @Service
@@ -20,26 +34,64 @@ public class VideoService {
 
     private final VideoRepository videoRepository;
     private final VideoIndexService videoIndexService;
+    private final SearchIndexer searchIndexer;
 
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.VIDEO_PAGES, allEntries = true)
     public VideoEntity createPendingVideo(FileEntity file) {
-        return videoRepository.save(
+        VideoEntity video = videoRepository.save(
                 VideoEntity.builder()
                         .file(file)
                         .title(file.getFileName())
                         .readyForStreaming(false)
                         .build()
         );
+        videoIndexService.requestReindex(video.getId());
+        return video;
+    }
+
+    /**
+     * Newest videos first, paged by keyset on id: each page starts after the cursor returned
+     * with the previous one, so deep pages cost the same as the first and no count is run.
+     * Pages are cached briefly and dropped whenever a video is created or changed.
+     */
+    @Cacheable(cacheNames = CacheConfig.VIDEO_PAGES, key = "#cursor + '|' + #readyForStreaming + '|' + #size")
+    public VideoListPage listVideos(String cursor, Boolean readyForStreaming, int size) {
+        long beforeId = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : decodeListCursor(cursor);
+        PageRequest limit = PageRequest.ofSize(size);
+        Slice<VideoEntity> slice = readyForStreaming == null
+                ? videoRepository.findByIdLessThanOrderByIdDesc(beforeId, limit)
+                : videoRepository.findByReadyForStreamingAndIdLessThanOrderByIdDesc(readyForStreaming, beforeId, limit);
+
+        String nextCursor = null;
+        if (slice.hasNext() && slice.hasContent()) {
+            Long lastId = slice.getContent().get(slice.getNumberOfElements() - 1).getId();
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(lastId.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return new VideoListPage(slice.getContent(), slice.hasNext(), nextCursor);
     }
 
-    public Page<VideoEntity> listVideos(Pageable pageable) {
-      return videoRepository.findAll(pageable);
+    static long decodeListCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid list cursor", e);
+        }
     }
 
+    // Cached with its file, so repeated range requests for one video skip Postgres
+    @Cacheable(cacheNames = CacheConfig.VIDEOS, key = "#id", sync = true)
     public VideoEntity getVideo(Long id) {
         return videoRepository.findById(id)
                 .orElseThrow(() -> new IllegalStateException("Video not found"));
     }
 
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.VIDEOS, key = "#req.videoId"),
+            @CacheEvict(cacheNames = CacheConfig.VIDEO_PAGES, allEntries = true)
+    })
     public void updateVideoMetadata(VideoProcessedRequest req) {
         VideoEntity video = getVideo(req.getVideoId());
 
@@ -50,18 +102,46 @@ public class VideoService {
         video.setReadyForStreaming(true);
 
         videoRepository.save(video);
+        videoIndexService.requestReindex(video.getId());
+    }
+
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.VIDEOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.VIDEO_PAGES, allEntries = true)
+    })
+    public void markHlsReady(Long id, String hlsPath) {
+        VideoEntity video = getVideo(id);
+        video.setHlsPath(hlsPath);
+        video.setReadyForStreaming(true);
+        videoRepository.save(video);
+        videoIndexService.requestReindex(id);
     }
 
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.VIDEOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.VIDEO_PAGES, allEntries = true)
+    })
     public VideoEntity updateVideoTitleDescription(Long id, String title, String description) {
         VideoEntity video = videoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Video not found: " + id));
         video.setTitle(title);
         video.setDescription(description);
-        videoIndexService.indexVideo(video);
-        return videoRepository.save(video);
+        VideoEntity saved = videoRepository.save(video);
+        videoIndexService.requestReindex(id);
+        return saved;
+    }
+
+    public boolean reindexAll() {
+        return searchIndexer.reindexAll();
+    }
+
+    public SearchResult<VideoEntity> searchVideos(VideoSearchCriteria criteria, Pageable pageable) {
+        return videoIndexService.searchVideos(criteria, pageable);
     }
 
-    public Page<VideoEntity> searchVideos(String query, Pageable pageable) {
-        return videoIndexService.searchVideos(query, pageable);
+    public SearchResult<VideoDocument> searchVideoDocuments(VideoSearchCriteria criteria, Pageable pageable) {
+        return videoIndexService.searchProjected(criteria, pageable);
     }
 }
@@ -0,0 +1,70 @@
+package com.streamvault.backend.storage;
+
+import com.streamvault.backend.util.Util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+/**
+ * Bloom filter over content hashes. A "no" is definite; a "yes" is wrong with probability
+ * close to the configured rate while no more than the expected number of hashes are added.
+ * Bit positions come from double hashing of the hash's own first 128 bits, which are already
+ * uniformly distributed, so {@link #positions} is also the layout of the Redis-shared copy.
+ */
+public class BloomFilter {
+
+    private static final Pattern HEX_DIGEST = Pattern.compile("[0-9a-f]{32,}");
+
+    private final long bits;
+    private final int hashFunctions;
+    private final AtomicLongArray words;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Need expectedInsertions > 0 and 0 < falsePositiveRate < 1");
+        }
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = Math.max(64, m);
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+        this.words = new AtomicLongArray((int) Math.ceil(bits / 64.0));
+    }
+
+    public long bitSize() {
+        return bits;
+    }
+
+    public long[] positions(String hash) {
+        String hex = HEX_DIGEST.matcher(hash).matches()
+                ? hash
+                : Util.toHex(Util.newDigest().digest(hash.getBytes(StandardCharsets.UTF_8)));
+        long h1 = Long.parseUnsignedLong(hex, 0, 16, 16);
+        long h2 = Long.parseUnsignedLong(hex, 16, 32, 16) | 1;
+
+        long[] positions = new long[hashFunctions];
+        for (int i = 0; i < hashFunctions; i++) {
+            positions[i] = Math.floorMod(h1 + i * h2, bits);
+        }
+        return positions;
+    }
+
+    public void put(String hash) {
+        for (long position : positions(hash)) {
+            int word = (int) (position >>> 6);
+            long mask = 1L << (position & 63);
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    public boolean mightContain(String hash) {
+        for (long position : positions(hash)) {
+            if ((words.get((int) (position >>> 6)) & (1L << (position & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
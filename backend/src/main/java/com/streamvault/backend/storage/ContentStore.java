@@ -0,0 +1,254 @@
+package com.streamvault.backend.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.streamvault.backend.model.FileChunk;
+import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.repository.ContentChunkRepository;
+import com.streamvault.backend.repository.FileChunkRepository;
+import com.streamvault.backend.repository.FileRepository;
+import com.streamvault.backend.util.Util;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Content-addressed storage for non-transcoded files. Files are split with {@link FastCdcChunker}
+ * and each distinct chunk is stored once in MinIO as {@code chunks/<sha256>}; a file row keeps
+ * its manifest in {@code file_chunks}. Reads reassemble any byte range from the manifest.
+ * <p>
+ * Chunk objects are written before their rows, so a crash in between leaves an unreferenced
+ * object that a later upload of the same bytes simply reuses.
+ */
+@Slf4j
+@Service
+public class ContentStore {
+
+    private static final String CHUNK_PREFIX = "chunks/";
+
+    private final MinioClient minioClient;
+    private final ContentChunkRepository contentChunkRepository;
+    private final FileChunkRepository fileChunkRepository;
+    private final FileRepository fileRepository;
+    private final FastCdcChunker chunker;
+    private final boolean enabled;
+    private final String bucket;
+
+    // Manifests never change once written
+    private final Cache<Long, List<FileChunk>> manifests = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    public record ChunkRef(String hash, long offset, int size) {
+    }
+
+    public ContentStore(
+            MinioClient minioClient,
+            ContentChunkRepository contentChunkRepository,
+            FileChunkRepository fileChunkRepository,
+            FileRepository fileRepository,
+            @Value("${storage.dedup.enabled:false}") boolean enabled,
+            @Value("${minio.bucket:files}") String bucket,
+            @Value("${storage.dedup.min-chunk-size:512KB}") DataSize minChunkSize,
+            @Value("${storage.dedup.avg-chunk-size:2MB}") DataSize avgChunkSize,
+            @Value("${storage.dedup.max-chunk-size:8MB}") DataSize maxChunkSize) {
+        this.minioClient = minioClient;
+        this.contentChunkRepository = contentChunkRepository;
+        this.fileChunkRepository = fileChunkRepository;
+        this.fileRepository = fileRepository;
+        this.enabled = enabled;
+        this.bucket = bucket;
+        this.chunker = new FastCdcChunker(
+                (int) minChunkSize.toBytes(), (int) avgChunkSize.toBytes(), (int) maxChunkSize.toBytes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Splits the file and uploads the chunks MinIO does not have yet. Nothing is referenced
+     * until {@link #register} commits, so this can be repeated safely.
+     */
+    public List<ChunkRef> upload(Path file) throws IOException {
+        List<ChunkRef> refs = new ArrayList<>();
+        Set<String> uploaded = new HashSet<>();
+        long[] newBytes = {0};
+
+        try (InputStream in = Files.newInputStream(file)) {
+            chunker.split(in, (offset, buffer, length) -> {
+                MessageDigest digest = Util.newDigest();
+                digest.update(buffer, 0, length);
+                String hash = Util.toHex(digest.digest());
+
+                if (!uploaded.contains(hash) && !contentChunkRepository.existsById(hash)) {
+                    putChunk(hash, buffer, length);
+                    newBytes[0] += length;
+                }
+                uploaded.add(hash);
+                refs.add(new ChunkRef(hash, offset, length));
+            });
+        }
+
+        log.info("[contentStore] Split {} into {} chunks, {} of {} bytes new",
+                file.getFileName(), refs.size(), newBytes[0], Files.size(file));
+        return refs;
+    }
+
+    // Joins the caller's transaction, so the merge can commit the file together with its checkpoint
+    @Transactional
+    public FileEntity register(FileEntity file, List<ChunkRef> refs) {
+        file.setStorageLayout(FileEntity.StorageLayout.CHUNKED);
+        file.setBucket(bucket);
+        FileEntity saved = fileRepository.save(file);
+
+        List<FileChunk> manifest = new ArrayList<>(refs.size());
+        for (int i = 0; i < refs.size(); i++) {
+            ChunkRef ref = refs.get(i);
+            manifest.add(FileChunk.builder()
+                    .fileId(saved.getId())
+                    .position(i)
+                    .fileOffset(ref.offset())
+                    .size(ref.size())
+                    .chunkHash(ref.hash())
+                    .build());
+            contentChunkRepository.addReference(ref.hash(), ref.size());
+        }
+        fileChunkRepository.saveAll(manifest);
+        return saved;
+    }
+
+    // Chunk objects are opened one at a time as the returned stream reaches them
+    public InputStream open(FileEntity file, long offset, long length) {
+        // Not a loading get: the query would run inside Caffeine's compute lock and pin a virtual thread
+        List<FileChunk> manifest = manifests.getIfPresent(file.getId());
+        if (manifest == null) {
+            manifest = fileChunkRepository.findByFileIdOrderByPosition(file.getId());
+            manifests.put(file.getId(), manifest);
+        }
+
+        List<FileChunk> covering = new ArrayList<>();
+        int first = firstChunkAt(manifest, offset);
+        long end = offset + length;
+        for (int i = first; i >= 0 && i < manifest.size() && manifest.get(i).getFileOffset() < end; i++) {
+            covering.add(manifest.get(i));
+        }
+        return new ManifestInputStream(covering.iterator(), offset, end);
+    }
+
+    // Index of the chunk containing offset, or -1 if the offset is past the end of the file
+    static int firstChunkAt(List<FileChunk> manifest, long offset) {
+        int low = 0;
+        int high = manifest.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            FileChunk chunk = manifest.get(mid);
+            if (offset < chunk.getFileOffset()) {
+                high = mid - 1;
+            } else if (offset >= chunk.getFileOffset() + chunk.getSize()) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void putChunk(String hash, byte[] buffer, int length) throws IOException {
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(CHUNK_PREFIX + hash)
+                            .stream(new ByteArrayInputStream(buffer, 0, length), length, -1)
+                            .contentType("application/octet-stream")
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new IOException("Failed to upload chunk " + hash + " to MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    private InputStream openChunk(String hash, long offset, long length) throws IOException {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(CHUNK_PREFIX + hash)
+                            .offset(offset)
+                            .length(length)
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new IOException("Failed to read chunk " + hash + " from MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    private final class ManifestInputStream extends InputStream {
+        private final Iterator<FileChunk> chunks;
+        private final long start;
+        private final long end;
+        private InputStream current;
+
+        private ManifestInputStream(Iterator<FileChunk> chunks, long start, long end) {
+            this.chunks = chunks;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                if (current == null) {
+                    if (!chunks.hasNext()) {
+                        return -1;
+                    }
+                    FileChunk chunk = chunks.next();
+                    long from = Math.max(start, chunk.getFileOffset());
+                    long to = Math.min(end, chunk.getFileOffset() + chunk.getSize());
+                    current = openChunk(chunk.getChunkHash(), from - chunk.getFileOffset(), to - from);
+                }
+                int read = current.read(b, off, len);
+                if (read >= 0) {
+                    return read;
+                }
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
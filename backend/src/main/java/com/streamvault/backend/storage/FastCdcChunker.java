@@ -0,0 +1,106 @@
+package com.streamvault.backend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Content-defined chunking with FastCDC (Xia et al., USENIX ATC '16). A gear rolling hash is
+ * computed from {@code minSize} on; a cut is made where the masked hash is zero. Before the
+ * average size a stricter mask is used and after it a looser one, which keeps chunk sizes
+ * close to the average. Because cuts depend only on nearby content, an edit shifts the
+ * boundaries around it and the chunks after it line up again.
+ */
+public class FastCdcChunker {
+
+    // Fixed seed: boundaries, and so deduplication against chunks already stored, depend on this table
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_FA57_CDC0_0001L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        // The buffer is reused once this returns, so the chunk must be consumed or copied here
+        void accept(long offset, byte[] buffer, int length) throws IOException;
+    }
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long maskStrict;
+    private final long maskLoose;
+
+    public FastCdcChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Chunk sizes must satisfy 0 < min <= avg <= max, got " + minSize + "/" + avgSize + "/" + maxSize);
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+
+        // The gear hash shifts left, so its high bits cover the most recent bytes
+        int bits = 63 - Long.numberOfLeadingZeros(avgSize);
+        this.maskStrict = topBits(bits + 1);
+        this.maskLoose = topBits(bits - 1);
+    }
+
+    public void split(InputStream in, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[maxSize];
+        int filled = 0;
+        long offset = 0;
+        boolean eof = false;
+
+        while (true) {
+            while (!eof && filled < maxSize) {
+                int read = in.read(buffer, filled, maxSize - filled);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                }
+            }
+            if (filled == 0) {
+                return;
+            }
+
+            int cut = cutPoint(buffer, filled);
+            consumer.accept(offset, buffer, cut);
+            System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+            filled -= cut;
+            offset += cut;
+        }
+    }
+
+    int cutPoint(byte[] data, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int end = Math.min(length, maxSize);
+        int normal = Math.min(avgSize, end);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xff];
+            if ((hash & maskStrict) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < end; i++) {
+            hash = (hash << 1) + GEAR[data[i] & 0xff];
+            if ((hash & maskLoose) == 0) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    private static long topBits(int count) {
+        return count <= 0 ? 0 : -1L << (64 - count);
+    }
+}
@@ -0,0 +1,255 @@
+package com.streamvault.backend.storage;
+
+import com.streamvault.backend.repository.FileRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of every stored file hash, consulted before {@code files} is queried. A miss
+ * means the content is new and Postgres is skipped; a hit still goes to Postgres. Until the
+ * filter has been loaded at startup every lookup goes to Postgres. Correctness never depends
+ * on the filter: the unique index on {@code files.hash} rejects a duplicate it let through.
+ * <p>
+ * In {@code redis} mode the bits live in one Redis bitmap shared by all instances, so hashes
+ * stored by another instance are seen; the default {@code local} mode only sees its own. The
+ * bit just past the filter marks a completed load. It lives in the same key, so a bitmap that was
+ * evicted, or is still being loaded by another instance, answers every lookup with Postgres
+ * until a full load has set it again.
+ */
+@Slf4j
+@Component
+public class FileHashIndex {
+
+    private static final String REDIS_KEY = "files:hash-bloom";
+    private static final int LOAD_BATCH = 1_000;
+
+    // ARGV[1] is the load marker bit, the rest are bit positions. Returns -1 if the marker is not
+    // set, otherwise 1 only if all positions are set
+    private static final RedisScript<Long> CHECK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('GETBIT', KEYS[1], ARGV[1]) == 0 then
+              return -1
+            end
+            for i = 2, #ARGV do
+              if redis.call('GETBIT', KEYS[1], ARGV[i]) == 0 then
+                return 0
+              end
+            end
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>("""
+            for i = 1, #ARGV do
+              redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+            end
+            return #ARGV
+            """, Long.class);
+
+    private final FileRepository fileRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BloomFilter filter;
+    private final boolean enabled;
+    private final boolean shared;
+
+    private final Counter definitelyNew;
+    private final Counter truePositives;
+    private final Counter falsePositives;
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "hash-filter-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean ready;
+
+    public FileHashIndex(
+            FileRepository fileRepository,
+            StringRedisTemplate redisTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${storage.hash-filter.enabled:true}") boolean enabled,
+            @Value("${storage.hash-filter.mode:local}") String mode,
+            @Value("${storage.hash-filter.expected-files:10000000}") long expectedFiles,
+            @Value("${storage.hash-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.fileRepository = fileRepository;
+        this.redisTemplate = redisTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.filter = new BloomFilter(expectedFiles, falsePositiveRate);
+        this.enabled = enabled;
+        this.shared = "redis".equalsIgnoreCase(mode);
+
+        this.definitelyNew = meterRegistry.counter("files.hash.filter", "result", "negative");
+        this.truePositives = meterRegistry.counter("files.hash.filter", "result", "true_positive");
+        this.falsePositives = meterRegistry.counter("files.hash.filter", "result", "false_positive");
+        meterRegistry.gauge("files.hash.filter.loaded", loaded);
+        meterRegistry.gauge("files.hash.filter.false_positive_rate", this, FileHashIndex::observedFalsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled || !loading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            load();
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reloader.shutdownNow();
+    }
+
+    private void load() {
+        if (shared && Boolean.TRUE.equals(redisTemplate.opsForValue().getBit(REDIS_KEY, markerBit()))) {
+            ready = true;
+            log.info("[hashIndex] Using the existing shared filter in Redis");
+            return;
+        }
+
+        long start = System.nanoTime();
+        loaded.set(0);
+        try {
+            readOnlyTransaction.executeWithoutResult(tx -> {
+                List<String> batch = new ArrayList<>(LOAD_BATCH);
+                try (Stream<String> hashes = fileRepository.streamHashes()) {
+                    hashes.forEach(hash -> {
+                        batch.add(hash);
+                        if (batch.size() == LOAD_BATCH) {
+                            addAll(batch);
+                            batch.clear();
+                        }
+                    });
+                }
+                addAll(batch);
+            });
+            if (shared) {
+                redisTemplate.opsForValue().setBit(REDIS_KEY, markerBit(), true);
+            }
+            ready = true;
+            log.info("[hashIndex] Loaded {} hashes in {} ms ({} bits)",
+                    loaded.get(), (System.nanoTime() - start) / 1_000_000, filter.bitSize());
+        } catch (RuntimeException e) {
+            log.warn("[hashIndex] Could not load the hash filter, lookups go to Postgres: {}", e.getMessage());
+        }
+    }
+
+    public boolean mightExist(String hash) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        try {
+            boolean maybe;
+            if (shared) {
+                Long result = redisTemplate.execute(CHECK_SCRIPT, List.of(REDIS_KEY), checkArgs(hash));
+                if (result == null || result < 0) {
+                    reloadInBackground();
+                    return true;
+                }
+                maybe = result == 1;
+            } else {
+                maybe = filter.mightContain(hash);
+            }
+            if (!maybe) {
+                definitelyNew.increment();
+            }
+            return maybe;
+        } catch (RuntimeException e) {
+            log.warn("[hashIndex] Filter lookup failed, falling back to Postgres: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    // Called with the outcome of the Postgres lookup behind a positive answer
+    public void recordLookup(boolean found) {
+        (found ? truePositives : falsePositives).increment();
+    }
+
+    public void add(String hash) {
+        if (!enabled || hash == null) {
+            return;
+        }
+        addAll(List.of(hash));
+    }
+
+    // Share of lookups for new content that the filter could not rule out
+    double observedFalsePositiveRate() {
+        double negatives = definitelyNew.count();
+        double falseHits = falsePositives.count();
+        return negatives + falseHits == 0 ? 0 : falseHits / (negatives + falseHits);
+    }
+
+    private void addAll(List<String> hashes) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        if (shared) {
+            Object[] positions = hashes.stream()
+                    .flatMap(hash -> Arrays.stream(args(hash)))
+                    .toArray();
+            redisTemplate.execute(ADD_SCRIPT, List.of(REDIS_KEY), positions);
+        } else {
+            hashes.forEach(filter::put);
+        }
+        loaded.addAndGet(hashes.size());
+    }
+
+    // The shared bitmap lost its load marker, e.g. to eviction or a flush
+    private void reloadInBackground() {
+        if (!loading.compareAndSet(false, true)) {
+            return;
+        }
+        log.warn("[hashIndex] Shared filter is not fully loaded, lookups go to Postgres until it is reloaded");
+        reloader.execute(() -> {
+            try {
+                load();
+            } finally {
+                loading.set(false);
+            }
+        });
+    }
+
+    private long markerBit() {
+        return filter.bitSize();
+    }
+
+    private Object[] checkArgs(String hash) {
+        long[] positions = filter.positions(hash);
+        Object[] args = new Object[positions.length + 1];
+        args[0] = String.valueOf(markerBit());
+        for (int i = 0; i < positions.length; i++) {
+            args[i + 1] = String.valueOf(positions[i]);
+        }
+        return args;
+    }
+
+    private Object[] args(String hash) {
+        return Arrays.stream(filter.positions(hash)).mapToObj(String::valueOf).toArray();
+    }
+}
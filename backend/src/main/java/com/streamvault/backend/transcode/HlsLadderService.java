@@ -0,0 +1,181 @@
+package com.streamvault.backend.transcode;
+
+import com.streamvault.backend.model.TranscodeJob;
+import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.service.FfmpegService;
+import com.streamvault.backend.service.FileService;
+import com.streamvault.backend.service.VideoService;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Builds the adaptive bitrate ladder for a stored video: one fMP4 (CMAF) HLS rendition
+ * per configured height, uploaded under {@code hls/{videoId}/} in the file bucket.
+ * Renditions are encoded lowest first and the master playlist is rewritten after each
+ * one, so playback starts as soon as the lowest rendition is stored.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HlsLadderService {
+
+    private static final String PLAYLIST_CONTENT_TYPE = "application/vnd.apple.mpegurl";
+    private static final String MASTER_PLAYLIST = "master.m3u8";
+
+    private final FfmpegService ffmpegService;
+    private final FileService fileService;
+    private final VideoService videoService;
+
+    // height:videoKbps pairs
+    @Value("${hls.renditions:360:800,720:2800,1080:5000}")
+    private List<String> renditionSpecs;
+
+    @Value("${hls.segment-seconds:4}")
+    private int segmentSeconds;
+
+    private List<Rendition> ladder;
+
+    record Rendition(int height, int videoKbps) {
+
+        String name() {
+            return height + "p";
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        ladder = renditionSpecs.stream()
+                .map(HlsLadderService::parseRendition)
+                .sorted(Comparator.comparingInt(Rendition::height))
+                .toList();
+        if (ladder.isEmpty()) {
+            throw new IllegalStateException("hls.renditions must define at least one rendition");
+        }
+    }
+
+    public void generate(TranscodeJob job, TranscodeScheduler.JobContext context) throws Exception {
+        VideoEntity video = videoService.getVideo(job.getVideoId());
+        String prefix = "hls/" + video.getId() + "/";
+        Path workDir = Files.createTempDirectory("hls-" + video.getId());
+
+        try {
+            Path source = workDir.resolve("source");
+            fileService.downloadFile(video.getFile(), source);
+            FfmpegService.ProbeResult probe = ffmpegService.probe(source);
+
+            List<Rendition> renditions = renditionsFor(probe.height());
+            List<Rendition> stored = new ArrayList<>();
+            log.info("[hls] Building {} renditions for videoId={} from {}x{}",
+                    renditions.size(), video.getId(), probe.width(), probe.height());
+
+            for (int i = 0; i < renditions.size(); i++) {
+                Rendition rendition = renditions.get(i);
+                Path outputDir = Files.createDirectory(workDir.resolve(rendition.name()));
+
+                Process process = ffmpegService.startHls(source, outputDir, rendition.height(),
+                        rendition.videoKbps(), segmentSeconds, context.threadsPerJob());
+                context.await(process, probe.durationSeconds(),
+                        (double) i / renditions.size(), (double) (i + 1) / renditions.size());
+
+                uploadRendition(prefix + rendition.name() + "/", outputDir);
+                stored.add(rendition);
+
+                byte[] master = masterPlaylist(stored, probe.width(), probe.height(), probe.audioCodec() != null).getBytes(StandardCharsets.UTF_8);
+                fileService.storeObject(prefix + MASTER_PLAYLIST, new ByteArrayInputStream(master),
+                        master.length, PLAYLIST_CONTENT_TYPE);
+                log.info("[hls] Stored rendition {} for videoId={}", rendition.name(), video.getId());
+
+                if (i == 0) {
+                    videoService.markHlsReady(video.getId(), prefix + MASTER_PLAYLIST);
+                }
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    // Never upscale; a source below the lowest rung still gets one rendition at its own height
+    List<Rendition> renditionsFor(Integer sourceHeight) {
+        if (sourceHeight == null) {
+            return ladder;
+        }
+        List<Rendition> fitting = ladder.stream()
+                .filter(r -> r.height() <= sourceHeight)
+                .toList();
+        if (fitting.isEmpty()) {
+            return List.of(new Rendition(sourceHeight - sourceHeight % 2, ladder.get(0).videoKbps()));
+        }
+        return fitting;
+    }
+
+    static String masterPlaylist(List<Rendition> renditions, Integer sourceWidth, Integer sourceHeight, boolean audio) {
+        StringBuilder sb = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:7\n")
+                .append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+        for (Rendition rendition : renditions) {
+            sb.append("#EXT-X-STREAM-INF:BANDWIDTH=")
+                    .append(FfmpegService.peakKbps(rendition.videoKbps()) * 1000L);
+            if (sourceWidth != null && sourceHeight != null && sourceHeight > 0) {
+                // Matches scale=-2:height, which keeps the aspect ratio and rounds the width to even
+                long width = Math.round((double) sourceWidth * rendition.height() / sourceHeight / 2) * 2;
+                sb.append(",RESOLUTION=").append(width).append('x').append(rendition.height());
+            }
+            sb.append(",CODECS=\"").append(FfmpegService.hlsCodecs(rendition.height(), audio)).append('"');
+            sb.append('\n').append(rendition.name()).append("/index.m3u8\n");
+        }
+        return sb.toString();
+    }
+
+    private void uploadRendition(String prefix, Path outputDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(outputDir)) {
+            files = listing.sorted().toList();
+        }
+        for (Path file : files) {
+            try (InputStream is = Files.newInputStream(file)) {
+                fileService.storeObject(prefix + file.getFileName(), is, Files.size(file), contentType(file));
+            }
+        }
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".m3u8")) {
+            return PLAYLIST_CONTENT_TYPE;
+        }
+        if (name.endsWith(".m4s")) {
+            return "video/iso.segment";
+        }
+        return "video/mp4";
+    }
+
+    private static Rendition parseRendition(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            if (parts.length == 2) {
+                return new Rendition(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            }
+        } catch (NumberFormatException ignored) {
+            // fall through to the error below
+        }
+        throw new IllegalStateException("Invalid hls.renditions entry '" + spec + "', expected height:kbps");
+    }
+}
@@ -0,0 +1,9 @@
+package com.streamvault.backend.transcode;
+
+import com.streamvault.backend.model.TranscodeJob;
+
+import java.nio.file.Path;
+
+// Published on the worker thread once the job is finished; the output file is deleted once all listeners return
+public record TranscodeJobCompletedEvent(TranscodeJob job, Path output) {
+}
@@ -0,0 +1,486 @@
+package com.streamvault.backend.transcode;
+
+import com.streamvault.backend.model.TranscodeJob;
+import com.streamvault.backend.model.UploadStatus;
+import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.repository.TranscodeJobRepository;
+import com.streamvault.backend.repository.UploadStatusRepository;
+import com.streamvault.backend.service.FfmpegService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs FFmpeg jobs off the Kafka consumer thread on a fixed, CPU-sized worker pool.
+ * Jobs are persisted in {@code transcode_jobs} and queued in two lanes by input size;
+ * within a lane the smallest job runs first. Some workers only take small jobs, so a
+ * backlog of large uploads cannot starve short ones.
+ * <p>
+ * Each job is leased by the instance that queued it, which renews the lease while the job is
+ * unfinished. On restart an instance only recovers its own jobs; jobs whose owner stopped
+ * renewing are taken over by whichever instance notices first.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TranscodeScheduler {
+
+    private static final Comparator<TranscodeJob> SMALLEST_FIRST =
+            Comparator.comparing(TranscodeJob::getSizeBytes).thenComparing(TranscodeJob::getId);
+    private static final Duration PROGRESS_PERSIST_INTERVAL = Duration.ofSeconds(2);
+    private static final List<TranscodeJob.Status> UNFINISHED =
+            List.of(TranscodeJob.Status.QUEUED, TranscodeJob.Status.RUNNING);
+
+    private final TranscodeJobRepository jobRepository;
+    private final UploadStatusRepository uploadStatusRepository;
+    private final FfmpegService ffmpegService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final HlsLadderService hlsLadderService;
+
+    // 0 means: derive from the available processors and threads per job
+    @Value("${transcode.workers:0}")
+    private int configuredWorkers;
+
+    @Value("${transcode.threads-per-job:2}")
+    private int threadsPerJob;
+
+    @Value("${transcode.small-job-threshold:256MB}")
+    private DataSize smallJobThreshold;
+
+    @Value("${transcode.reserved-small-workers:1}")
+    private int reservedSmallWorkers;
+
+    // Must survive restarts, so an instance can find the jobs whose input is on its disk
+    @Value("${transcode.instance-id:${HOSTNAME:}}")
+    private String instanceId;
+
+    @Value("${transcode.lease:5m}")
+    private Duration lease;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition jobAvailable = lock.newCondition();
+    private final PriorityQueue<TranscodeJob> smallQueue = new PriorityQueue<>(SMALLEST_FIRST);
+    private final PriorityQueue<TranscodeJob> largeQueue = new PriorityQueue<>(SMALLEST_FIRST);
+    private final Map<Long, Process> running = new ConcurrentHashMap<>();
+    private final Set<Long> cancelled = ConcurrentHashMap.newKeySet();
+
+    private ExecutorService workers;
+    private ScheduledExecutorService leaseKeeper;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = InetAddress.getLocalHost().getHostName();
+        }
+        recoverOwnJobs();
+
+        int workerCount = configuredWorkers > 0
+                ? configuredWorkers
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, threadsPerJob));
+        int smallOnly = workerCount > 1 ? Math.min(reservedSmallWorkers, workerCount - 1) : 0;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "transcode-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            boolean smallJobsOnly = i < smallOnly;
+            workers.submit(() -> workerLoop(smallJobsOnly));
+        }
+
+        leaseKeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "transcode-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, lease.toMillis() / 3);
+        leaseKeeper.scheduleWithFixedDelay(this::maintainLeases, period, period, TimeUnit.MILLISECONDS);
+
+        meterRegistry.gauge("transcode.queue.size", smallQueue, PriorityQueue::size);
+        meterRegistry.gauge("transcode.queue.large.size", largeQueue, PriorityQueue::size);
+        meterRegistry.gauge("transcode.running", running, Map::size);
+
+        log.info("[transcode] Started {} workers ({} reserved for small jobs), {} threads per job, instance {}",
+                workerCount, smallOnly, threadsPerJob, instanceId);
+    }
+
+    @PreDestroy
+    void stop() {
+        leaseKeeper.shutdownNow();
+        workers.shutdownNow();
+        running.values().forEach(Process::destroy);
+    }
+
+    public TranscodeJob submit(String uploadId, String fileName, String hash, Path input) throws IOException {
+        long size = Files.size(input);
+        TranscodeJob job = jobRepository.save(TranscodeJob.builder()
+                .type(TranscodeJob.Type.UPLOAD)
+                .uploadId(uploadId)
+                .fileName(fileName)
+                .hash(hash)
+                .inputPath(input.toAbsolutePath().toString())
+                .sizeBytes(size)
+                .lane(size <= smallJobThreshold.toBytes() ? TranscodeJob.Lane.SMALL : TranscodeJob.Lane.LARGE)
+                .status(TranscodeJob.Status.QUEUED)
+                .progress(0.0)
+                .owner(instanceId)
+                .heartbeatAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        updateUploadStatus(uploadId, UploadStatus.Status.TRANSCODE_QUEUED);
+        enqueue(job);
+        log.info("[transcode] Queued job {} for uploadId={} in lane {} ({} bytes)", job.getId(), uploadId, job.getLane(), size);
+        return job;
+    }
+
+    // Ladder jobs read the stored video from MinIO, so they survive restarts on any node
+    public TranscodeJob submitHlsLadder(String uploadId, VideoEntity video) {
+        long size = video.getFile().getSize();
+        TranscodeJob job = jobRepository.save(TranscodeJob.builder()
+                .type(TranscodeJob.Type.HLS_LADDER)
+                .uploadId(uploadId)
+                .videoId(video.getId())
+                .fileName(video.getFile().getFileName())
+                .sizeBytes(size)
+                .lane(size <= smallJobThreshold.toBytes() ? TranscodeJob.Lane.SMALL : TranscodeJob.Lane.LARGE)
+                .status(TranscodeJob.Status.QUEUED)
+                .progress(0.0)
+                .owner(instanceId)
+                .heartbeatAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        enqueue(job);
+        log.info("[transcode] Queued HLS ladder job {} for videoId={}", job.getId(), video.getId());
+        return job;
+    }
+
+    public Optional<TranscodeJob> findJob(String uploadId) {
+        return findJob(uploadId, TranscodeJob.Type.UPLOAD);
+    }
+
+    public Optional<TranscodeJob> findJob(String uploadId, TranscodeJob.Type type) {
+        return jobRepository.findFirstByUploadIdAndTypeOrderByIdDesc(uploadId, type);
+    }
+
+    public boolean cancel(String uploadId) {
+        Optional<TranscodeJob> found = findJob(uploadId);
+        if (found.isEmpty()) {
+            return false;
+        }
+        TranscodeJob job = found.get();
+
+        lock.lock();
+        try {
+            if (smallQueue.removeIf(j -> j.getId().equals(job.getId()))
+                    || largeQueue.removeIf(j -> j.getId().equals(job.getId()))) {
+                finish(job, TranscodeJob.Status.CANCELLED, null);
+                deleteQuietly(Path.of(job.getInputPath()));
+                log.info("[transcode] Cancelled queued job {} for uploadId={}", job.getId(), uploadId);
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Either running, or already taken off the queue by a worker that has not started it yet
+        if (job.getStatus() == TranscodeJob.Status.RUNNING || job.getStatus() == TranscodeJob.Status.QUEUED) {
+            cancelled.add(job.getId());
+            Process process = running.get(job.getId());
+            if (process != null) {
+                process.destroy();
+            }
+            log.info("[transcode] Cancelling running job {} for uploadId={}", job.getId(), uploadId);
+            return true;
+        }
+        return false;
+    }
+
+    // Jobs queued by this instance before it restarted; their input, if any, is on this disk
+    void recoverOwnJobs() {
+        jobRepository.renewLeases(instanceId, LocalDateTime.now(), UNFINISHED);
+        for (TranscodeJob job : jobRepository.findByStatusInAndOwnerOrderById(UNFINISHED, instanceId)) {
+            requeue(job, "after restart");
+        }
+    }
+
+    void maintainLeases() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            jobRepository.renewLeases(instanceId, now, UNFINISHED);
+            adoptExpiredJobs(now);
+        } catch (Exception e) {
+            log.warn("[transcode] Lease maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void adoptExpiredJobs(LocalDateTime now) {
+        LocalDateTime expiredBefore = now.minus(lease);
+        for (TranscodeJob job : jobRepository.findExpired(UNFINISHED, expiredBefore)) {
+            if (jobRepository.takeOver(job.getId(), instanceId, now, expiredBefore, UNFINISHED) == 0) {
+                continue;
+            }
+            log.info("[transcode] Took over job {} for uploadId={} from instance {}",
+                    job.getId(), job.getUploadId(), job.getOwner());
+            job.setOwner(instanceId);
+            job.setHeartbeatAt(now);
+            requeue(job, "from an expired lease");
+        }
+    }
+
+    private void requeue(TranscodeJob job, String reason) {
+        if (job.getInputPath() == null || Files.exists(Path.of(job.getInputPath()))) {
+            job.setStatus(TranscodeJob.Status.QUEUED);
+            job.setProgress(0.0);
+            enqueue(jobRepository.save(job));
+            log.info("[transcode] Re-queued job {} for uploadId={} {}", job.getId(), job.getUploadId(), reason);
+        } else {
+            finish(job, TranscodeJob.Status.FAILED, "Input lost: " + job.getInputPath());
+        }
+    }
+
+    private void enqueue(TranscodeJob job) {
+        lock.lock();
+        try {
+            (job.getLane() == TranscodeJob.Lane.SMALL ? smallQueue : largeQueue).add(job);
+            jobAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TranscodeJob take(boolean smallJobsOnly) throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                TranscodeJob job = smallQueue.poll();
+                if (job == null && !smallJobsOnly) {
+                    job = largeQueue.poll();
+                }
+                if (job != null) {
+                    return job;
+                }
+                jobAvailable.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void workerLoop(boolean smallJobsOnly) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                run(take(smallJobsOnly));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("[transcode] Worker error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void run(TranscodeJob job) {
+        String uploadId = job.getUploadId();
+        boolean uploadJob = job.getType() == TranscodeJob.Type.UPLOAD;
+
+        job.setStatus(TranscodeJob.Status.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        if (uploadJob) {
+            updateUploadStatus(uploadId, UploadStatus.Status.TRANSCODING);
+        }
+        meterRegistry.timer("upload.merge.stage", "stage", "queue")
+                .record(Duration.between(job.getCreatedAt(), job.getStartedAt()));
+
+        Path output = null;
+        try {
+            JobContext context = new JobContext(job);
+            if (uploadJob) {
+                output = transcodeUpload(job, context);
+            } else {
+                hlsLadderService.generate(job, context);
+            }
+            finish(job, TranscodeJob.Status.SUCCEEDED, null);
+            log.info("[transcode] {} job {} for uploadId={} succeeded", job.getType(), job.getId(), uploadId);
+
+        } catch (Exception e) {
+            if (cancelled.contains(job.getId())) {
+                finish(job, TranscodeJob.Status.CANCELLED, null);
+                log.info("[transcode] {} job {} for uploadId={} cancelled", job.getType(), job.getId(), uploadId);
+            } else {
+                log.error("[transcode] {} job {} for uploadId={} failed: {}", job.getType(), job.getId(), uploadId, e.getMessage(), e);
+                finish(job, TranscodeJob.Status.FAILED, e.getMessage());
+            }
+        } finally {
+            cancelled.remove(job.getId());
+            if (job.getInputPath() != null) {
+                deleteQuietly(Path.of(job.getInputPath()));
+            }
+        }
+
+        // Handed off only once the job is finished, so a merge that the listener re-drives does not
+        // find this job still in flight
+        if (output != null) {
+            try {
+                eventPublisher.publishEvent(new TranscodeJobCompletedEvent(job, output));
+            } catch (Exception e) {
+                log.error("[transcode] Handing off the output of job {} for uploadId={} failed: {}",
+                        job.getId(), uploadId, e.getMessage(), e);
+            } finally {
+                deleteQuietly(output);
+            }
+        }
+    }
+
+    /**
+     * Records that the output of a succeeded upload job could not be stored. The upload itself
+     * is left to the merge that the listener re-drives, so its status is not touched.
+     */
+    public void markOutputNotStored(TranscodeJob job, String error) {
+        job.setStatus(TranscodeJob.Status.FAILED);
+        job.setError("Output not stored: " + error);
+        jobRepository.save(job);
+    }
+
+    // Returns the transcoded output, which the caller hands off and then deletes
+    private Path transcodeUpload(TranscodeJob job, JobContext context) throws Exception {
+        Path input = Path.of(job.getInputPath());
+        Path output = Files.createTempFile(job.getUploadId() + "_final", ".mp4");
+
+        boolean done = false;
+        try {
+            long probeStart = System.nanoTime();
+            FfmpegService.ProbeResult probe = ffmpegService.probe(input);
+            record("probe", probeStart);
+
+            FfmpegService.Mode mode = probe.streamCopyable() ? FfmpegService.Mode.REMUX : FfmpegService.Mode.TRANSCODE;
+            log.info("[transcode] Job {} for uploadId={}: video={}, audio={}, mode={}",
+                    job.getId(), job.getUploadId(), probe.videoCodec(), probe.audioCodec(), mode);
+
+            long ffmpegStart = System.nanoTime();
+            context.await(ffmpegService.start(mode, input, output, threadsPerJob), probe.durationSeconds(), 0.0, 1.0);
+            record(mode.name().toLowerCase(), ffmpegStart);
+
+            job.setProgress(1.0);
+            done = true;
+            return output;
+        } finally {
+            if (!done) {
+                deleteQuietly(output);
+            }
+        }
+    }
+
+    private void finish(TranscodeJob job, TranscodeJob.Status status, String error) {
+        job.setStatus(status);
+        job.setError(error);
+        job.setFinishedAt(LocalDateTime.now());
+        jobRepository.save(job);
+
+        // A successful job's upload is completed by the listener that stores the output,
+        // and ladder jobs run after the upload is already complete
+        if (job.getType() != TranscodeJob.Type.UPLOAD) {
+            return;
+        }
+        if (status == TranscodeJob.Status.FAILED) {
+            updateUploadStatus(job.getUploadId(), UploadStatus.Status.FAILED);
+        } else if (status == TranscodeJob.Status.CANCELLED) {
+            updateUploadStatus(job.getUploadId(), UploadStatus.Status.CANCELLED);
+        }
+    }
+
+    private void updateUploadStatus(String uploadId, UploadStatus.Status newStatus) {
+        uploadStatusRepository.updateStatus(uploadId, newStatus);
+    }
+
+    private void record(String stage, long startNanos) {
+        meterRegistry.timer("upload.merge.stage", "stage", stage)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("[transcode] Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Handed to job code so every FFmpeg process it starts can be cancelled and reports
+     * progress. Each process covers the {@code [from, to]} slice of the job's progress.
+     */
+    public final class JobContext {
+        private final TranscodeJob job;
+        private long lastPersisted = System.nanoTime();
+
+        private JobContext(TranscodeJob job) {
+            this.job = job;
+        }
+
+        public int threadsPerJob() {
+            return threadsPerJob;
+        }
+
+        public void await(Process process, Double durationSeconds, double from, double to)
+                throws IOException, InterruptedException {
+            running.put(job.getId(), process);
+            if (cancelled.contains(job.getId())) {
+                process.destroy();
+            }
+            try {
+                ffmpegService.await(process, outTimeSeconds -> {
+                    if (durationSeconds != null && durationSeconds > 0) {
+                        update(from + (to - from) * Math.min(1.0, outTimeSeconds / durationSeconds));
+                    }
+                });
+            } finally {
+                running.remove(job.getId());
+            }
+            update(to);
+        }
+
+        // Persists progress at most every PROGRESS_PERSIST_INTERVAL to keep DB writes per job bounded
+        private void update(double progress) {
+            job.setProgress(progress);
+            long now = System.nanoTime();
+            if (now - lastPersisted >= PROGRESS_PERSIST_INTERVAL.toNanos()) {
+                lastPersisted = now;
+                jobRepository.save(job);
+            }
+        }
+    }
+}
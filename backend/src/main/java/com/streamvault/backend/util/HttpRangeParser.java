@@ -0,0 +1,89 @@
+package com.streamvault.backend.util;
+
+import com.streamvault.backend.dto.ByteRange;
+import com.streamvault.backend.exception.RangeNotSatisfiableException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class HttpRangeParser {
+
+    private static final String BYTES_UNIT = "bytes=";
+    private static final int MAX_RANGES = 16;
+
+    private HttpRangeParser() {
+    }
+
+    /**
+     * Parses a {@code Range} header into satisfiable byte ranges.
+     * Returns an empty list when the header is absent or uses another unit, meaning the
+     * whole file should be served. Open-ended ranges ({@code bytes=N-}) are capped to
+     * {@code openEndedWindow} bytes; suffix ranges ({@code bytes=-N}) are served in full.
+     */
+    public static List<ByteRange> parse(String rangeHeader, long totalSize, long openEndedWindow) {
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT)) {
+            return List.of();
+        }
+
+        String[] specs = rangeHeader.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            throw new RangeNotSatisfiableException("Too many ranges: " + specs.length, totalSize);
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            ByteRange range = parseSpec(spec.trim(), totalSize, openEndedWindow);
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+
+        if (ranges.isEmpty()) {
+            throw new RangeNotSatisfiableException("No satisfiable range in: " + rangeHeader, totalSize);
+        }
+        return ranges;
+    }
+
+    private static ByteRange parseSpec(String spec, long totalSize, long openEndedWindow) {
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            throw new RangeNotSatisfiableException("Malformed range: " + spec, totalSize);
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+
+        try {
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes of the file
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength <= 0 || totalSize == 0) {
+                    return null;
+                }
+                return new ByteRange(Math.max(0, totalSize - suffixLength), totalSize - 1);
+            }
+
+            long start = Long.parseLong(first);
+            if (start < 0) {
+                throw new RangeNotSatisfiableException("Malformed range: " + spec, totalSize);
+            }
+            if (start >= totalSize) {
+                return null;
+            }
+
+            long end;
+            if (last.isEmpty()) {
+                end = Math.min(totalSize - 1, start + openEndedWindow - 1);
+            } else {
+                end = Long.parseLong(last);
+                if (end < start) {
+                    throw new RangeNotSatisfiableException("Malformed range: " + spec, totalSize);
+                }
+                end = Math.min(end, totalSize - 1);
+            }
+            return new ByteRange(start, end);
+
+        } catch (NumberFormatException e) {
+            throw new RangeNotSatisfiableException("Malformed range: " + spec, totalSize);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.streamvault.backend.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Collapses concurrent loads of the same key into one: the first caller runs the loader and
+ * the others wait for its result. Unlike {@code ConcurrentHashMap.compute} or a Caffeine
+ * loading {@code get}, the loader runs outside any map lock, so a virtual thread blocked on
+ * I/O inside it does not pin its carrier thread.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface Loader<V, X extends Exception> {
+        V load() throws X;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <X extends Exception> V load(K key, Loader<V, X> loader) throws X {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+
+        if (running != null) {
+            try {
+                return running.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for " + key, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                // Only the loader's own checked exception type can complete the future
+                throw (X) cause;
+            }
+        }
+
+        try {
+            V value = loader.load();
+            mine.complete(value);
+            return value;
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+}
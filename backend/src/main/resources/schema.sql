@@ -0,0 +1,12 @@
+-- Full-text index for the database search fallback (VideoRepository.fullTextSearch)
+CREATE INDEX IF NOT EXISTS idx_videos_fulltext ON videos
+    USING GIN (to_tsvector('simple', coalesce(title, '') || ' ' || coalesce(description, '')));
+
+-- Keyset listing filtered by readiness (VideoRepository.findByReadyForStreamingAndIdLessThanOrderByIdDesc)
+CREATE INDEX IF NOT EXISTS idx_videos_ready_id ON videos (ready_for_streaming, id DESC);
+
+-- One row per content hash (FileEntity.HASH_INDEX). ddl-auto only logs a warning when duplicates
+-- from before the index block it, so duplicates keep their rows and references but lose their hash
+-- (the oldest row stays the dedupe target), and a failure here stops startup.
+UPDATE files f SET hash = NULL FROM files keep WHERE keep.hash = f.hash AND keep.id < f.id;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_files_hash ON files (hash);
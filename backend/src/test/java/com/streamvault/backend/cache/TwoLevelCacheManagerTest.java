@@ -0,0 +1,132 @@
+package com.streamvault.backend.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.model.VideoEntity;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TwoLevelCacheManagerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private TwoLevelCacheManager cacheManager;
+    private Cache videos;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheManager = new TwoLevelCacheManager(redisTemplate, objectMapper, "cache-invalidation", 100, Duration.ofMinutes(1))
+                .withCache("videos", VideoEntity.class, Duration.ofMinutes(10));
+        cacheManager.afterPropertiesSet();
+        videos = cacheManager.getCache("videos");
+    }
+
+    @Test
+    @DisplayName("a miss loads once, writes through to Redis, and later reads stay local")
+    void testReadThrough() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+
+        VideoEntity first = videos.get(7L, () -> {
+            loads.incrementAndGet();
+            return video(7L);
+        });
+        VideoEntity second = videos.get(7L, () -> {
+            loads.incrementAndGet();
+            return video(7L);
+        });
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).set(eq("cache:videos:7"), json.capture(), eq(Duration.ofMinutes(10)));
+        assertEquals("movie.mp4", objectMapper.readValue(json.getValue(), VideoEntity.class).getFile().getFileName());
+        verify(valueOperations, times(1)).get("cache:videos:7");
+    }
+
+    @Test
+    @DisplayName("a near-cache miss is filled from Redis without calling the loader")
+    void testRemoteHit() throws Exception {
+        when(valueOperations.get("cache:videos:3")).thenReturn(objectMapper.writeValueAsString(video(3L)));
+
+        VideoEntity video = videos.get(3L, () -> fail("loader must not run"));
+
+        assertEquals(3L, video.getId());
+        assertEquals("movie.mp4", video.getFile().getFileName());
+    }
+
+    @Test
+    @DisplayName("evict deletes the Redis entry and broadcasts the key")
+    void testEvictPublishes() {
+        videos.put(5L, video(5L));
+
+        videos.evict(5L);
+
+        assertNull(videos.get(5L));
+        verify(redisTemplate).delete("cache:videos:5");
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq("cache-invalidation"), message.capture());
+        assertTrue(message.getValue().endsWith(":videos:5"));
+
+        // The sender ignores its own message
+        videos.put(5L, video(5L));
+        cacheManager.onInvalidation(message.getValue());
+        assertNotNull(videos.get(5L));
+    }
+
+    @Test
+    @DisplayName("an invalidation from another instance drops only the near copy")
+    void testRemoteInvalidation() {
+        videos.put(9L, video(9L));
+
+        cacheManager.onInvalidation("other-instance:videos:9");
+
+        assertNull(videos.get(9L));
+        verify(redisTemplate, never()).delete(anyString());
+    }
+
+    @Test
+    @DisplayName("Redis failures degrade to the near cache")
+    void testRedisUnavailable() {
+        when(valueOperations.get(anyString())).thenThrow(new RuntimeException("redis down"));
+        doThrow(new RuntimeException("redis down")).when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+
+        VideoEntity video = videos.get(1L, () -> video(1L));
+
+        assertEquals(1L, video.getId());
+        assertSame(video, videos.get(1L).get());
+    }
+
+    private VideoEntity video(Long id) {
+        return VideoEntity.builder()
+                .id(id)
+                .title("video " + id)
+                .processedAt(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .file(FileEntity.builder().id(id).fileName("movie.mp4").build())
+                .build();
+    }
+}
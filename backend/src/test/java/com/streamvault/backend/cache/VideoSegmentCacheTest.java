@@ -0,0 +1,105 @@
+package com.streamvault.backend.cache;
+
+import com.streamvault.backend.dto.ByteRange;
+import com.streamvault.backend.model.FileEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoSegmentCacheTest {
+
+    private final byte[] content = new byte[10_000];
+    private final AtomicInteger originCalls = new AtomicInteger();
+    private final SegmentLoader origin = (offset, length) -> {
+        originCalls.incrementAndGet();
+        return Arrays.copyOfRange(content, (int) offset, (int) offset + length);
+    };
+
+    private VideoSegmentCache cache;
+    private FileEntity file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = FileEntity.builder().id(1L).size((long) content.length).build();
+
+        cache = new VideoSegmentCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "segmentSize", DataSize.ofBytes(1_024));
+        ReflectionTestUtils.setField(cache, "memoryCapacity", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(cache, "diskEnabled", false);
+        cache.init();
+    }
+
+    @Test
+    @DisplayName("writeRange assembles a range spanning several segments")
+    void testWriteRangeAcrossSegments() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        cache.writeRange(file, new ByteRange(1_000, 3_100), out, origin);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 1_000, 3_101), out.toByteArray());
+        assertEquals(4, originCalls.get());
+    }
+
+    @Test
+    @DisplayName("cached segments are not fetched from origin again")
+    void testSegmentsServedFromCache() throws Exception {
+        cache.writeRange(file, new ByteRange(0, 2_047), new ByteArrayOutputStream(), origin);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        cache.writeRange(file, new ByteRange(100, 2_000), out, origin);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 2_001), out.toByteArray());
+        assertEquals(2, originCalls.get());
+    }
+
+    @Test
+    @DisplayName("the last segment is shorter than the segment size")
+    void testLastSegment() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        cache.writeRange(file, new ByteRange(9_990, 9_999), out, origin);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 9_990, 10_000), out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("a short read from origin fails the request and is not cached")
+    void testShortSegmentNotCached() throws Exception {
+        SegmentLoader truncating = (offset, length) -> {
+            originCalls.incrementAndGet();
+            return Arrays.copyOfRange(content, (int) offset, (int) offset + length / 2);
+        };
+
+        assertThrows(EOFException.class,
+                () -> cache.writeRange(file, new ByteRange(0, 1_023), new ByteArrayOutputStream(), truncating));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeRange(file, new ByteRange(0, 1_023), out, origin);
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 1_024), out.toByteArray());
+        assertEquals(2, originCalls.get());
+    }
+
+    @Test
+    @DisplayName("a range past the end of the cached segments fails instead of looping")
+    void testRangePastSegmentEnd() {
+        FileEntity grown = FileEntity.builder().id(1L).size(20_000L).build();
+        assertDoesNotThrow(() -> cache.writeRange(file, new ByteRange(9_990, 9_999), new ByteArrayOutputStream(), origin));
+
+        assertThrows(EOFException.class,
+                () -> cache.writeRange(grown, new ByteRange(9_990, 10_100), new ByteArrayOutputStream(), origin));
+    }
+}
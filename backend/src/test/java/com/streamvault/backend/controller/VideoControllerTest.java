@@ -1,13 +1,19 @@
 package com.streamvault.backend.controller;
 
+import com.streamvault.backend.dto.ByteRange;
 import com.streamvault.backend.dto.StreamedFile;
+import com.streamvault.backend.dto.VideoListPage;
 import com.streamvault.backend.dto.VideoProcessedRequest;
+import com.streamvault.backend.exception.RangeNotSatisfiableException;
 import com.streamvault.backend.model.FileEntity;
 import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.search.SearchMode;
+import com.streamvault.backend.search.SearchResult;
+import com.streamvault.backend.search.VideoDocument;
+import com.streamvault.backend.search.VideoSearchCriteria;
 import com.streamvault.backend.service.FileService;
 import com.streamvault.backend.service.VideoService;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,13 +21,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.data.domain.Page;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -43,17 +49,8 @@ class VideoControllerTest {
     @MockitoBean
     private RedisTemplate<String, Object> redisTemplate;
 
-    @MockitoBean
-    private ZSetOperations<String, Object> zSetOperations;
-
-    @BeforeEach
-    void setUp() {
-        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
-        when(zSetOperations.removeRangeByScore(any(), anyDouble(), anyDouble())).thenReturn(0L); // mock behavior
-    }
-
     @Test
-    @DisplayName("listVideos returns paginated JSON response")
+    @DisplayName("listVideos returns a slice and the cursor for the next one")
     void testListVideos() throws Exception {
         VideoEntity entity = new VideoEntity();
         entity.setId(1L);
@@ -63,13 +60,25 @@ class VideoControllerTest {
         entity.setDurationSeconds(120L);
         entity.setReadyForStreaming(true);
 
-        Page<VideoEntity> page = new PageImpl<>(Collections.singletonList(entity));
-        when(videoService.listVideos(any(PageRequest.class))).thenReturn(page);
+        when(videoService.listVideos("abc", true, 1))
+                .thenReturn(new VideoListPage(Collections.singletonList(entity), true, "next"));
 
-        mockMvc.perform(get("/api/videos?page=0&size=10"))
+        mockMvc.perform(get("/api/videos?cursor=abc&readyForStreaming=true&size=1"))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next"))
+                .andExpect(jsonPath("$.last").value(false))
                 .andExpect(jsonPath("$.content[0].id").value(1L))
-                .andExpect(jsonPath("$.content[0].title").value("Test Video"));
+                .andExpect(jsonPath("$.content[0].title").value("Test Video"))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("listVideos rejects an invalid cursor")
+    void testListVideosInvalidCursor() throws Exception {
+        when(videoService.listVideos(eq("!!"), any(), anyInt())).thenThrow(new IllegalArgumentException("Invalid list cursor"));
+
+        mockMvc.perform(get("/api/videos?cursor=!!"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -121,9 +130,9 @@ class VideoControllerTest {
         byte[] expectedBytes = new byte[]{1, 2, 3};
 
         StreamedFile streamed = new StreamedFile(
-                expectedBytes,
-                0,
-                2,
+                out -> out.write(expectedBytes),
+                List.of(new ByteRange(0, 2)),
+                3,
                 3,
                 "video/mp4",
                 true
@@ -132,7 +141,11 @@ class VideoControllerTest {
         when(videoService.getVideo(id)).thenReturn(videoEntity);
         when(fileService.streamFile(file, range)).thenReturn(streamed);
 
-        mockMvc.perform(get("/api/videos/stream/4").header("Range", range))
+        MvcResult result = mockMvc.perform(get("/api/videos/stream/4").header("Range", range))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isPartialContent()) // 206
                 .andExpect(header().string("Content-Type", "video/mp4"))
                 .andExpect(header().string("Accept-Ranges", "bytes"))
@@ -157,4 +170,92 @@ class VideoControllerTest {
         mockMvc.perform(get("/api/videos/stream/5"))
                 .andExpect(status().isInternalServerError());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("streamVideo returns 416 with the file size when the range is not satisfiable")
+    void testStreamVideoRangeNotSatisfiable() throws Exception {
+        Long id = 6L;
+        String range = "bytes=500-";
+
+        VideoEntity videoEntity = new VideoEntity();
+        FileEntity file = new FileEntity();
+        videoEntity.setFile(file);
+
+        when(videoService.getVideo(id)).thenReturn(videoEntity);
+        when(fileService.streamFile(file, range))
+                .thenThrow(new RangeNotSatisfiableException("No satisfiable range", 100));
+
+        mockMvc.perform(get("/api/videos/stream/6").header("Range", range))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */100"));
+    }
+
+    @Test
+    @DisplayName("hlsRenditionFile serves segments from the ladder with immutable cache headers")
+    void testHlsRenditionFile() throws Exception {
+        VideoEntity videoEntity = new VideoEntity();
+        videoEntity.setId(7L);
+        videoEntity.setHlsPath("hls/7/master.m3u8");
+
+        byte[] segment = new byte[]{4, 5, 6, 7};
+        StreamedFile streamed = new StreamedFile(
+                out -> out.write(segment), List.of(), 4, 4, "video/iso.segment", false);
+
+        when(videoService.getVideo(7L)).thenReturn(videoEntity);
+        when(fileService.streamObject("hls/7/360p/seg_00001.m4s")).thenReturn(streamed);
+
+        MvcResult result = mockMvc.perform(get("/api/videos/7/hls/360p/seg_00001.m4s"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "video/iso.segment"))
+                .andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"))
+                .andExpect(content().bytes(segment));
+    }
+
+    @Test
+    @DisplayName("hlsMasterPlaylist returns 404 until the lowest rendition is stored")
+    void testHlsMasterPlaylistNotReady() throws Exception {
+        VideoEntity videoEntity = new VideoEntity();
+        videoEntity.setId(8L);
+
+        when(videoService.getVideo(8L)).thenReturn(videoEntity);
+
+        mockMvc.perform(get("/api/videos/8/hls/master.m3u8"))
+                .andExpect(status().isNotFound());
+        verify(fileService, never()).streamObject(any());
+    }
+
+    @Test
+    @DisplayName("searchVideos builds responses from the index unless hydrate is requested")
+    void testSearchVideosProjection() throws Exception {
+        VideoDocument doc = VideoDocument.builder()
+                .id("9")
+                .title("Indexed Video")
+                .readyForStreaming(true)
+                .hlsPath("hls/9/master.m3u8")
+                .build();
+
+        when(videoService.searchVideoDocuments(
+                eq(new VideoSearchCriteria("cat", true, null, null, 720, null, SearchMode.KEYWORD)), any(PageRequest.class)))
+                .thenReturn(new SearchResult<>(new PageImpl<>(List.of(doc)), "next"));
+
+        mockMvc.perform(get("/api/videos/search?query=cat&readyForStreaming=true&minHeight=720"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next"))
+                .andExpect(jsonPath("$.content[0].id").value(9L))
+                .andExpect(jsonPath("$.content[0].title").value("Indexed Video"))
+                .andExpect(jsonPath("$.content[0].hlsUrl").value("/api/videos/9/hls/master.m3u8"));
+        verify(videoService, never()).searchVideos(any(), any());
+    }
+
+    @Test
+    @DisplayName("searchVideos rejects an unknown search mode")
+    void testSearchVideosUnknownMode() throws Exception {
+        mockMvc.perform(get("/api/videos/search?query=cat&mode=fuzzy"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(videoService);
+    }
+}
@@ -0,0 +1,40 @@
+package com.streamvault.backend.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadCompletedEventSerdeTest {
+
+    private final UploadCompletedEventSerde serde = new UploadCompletedEventSerde();
+
+    @Test
+    @DisplayName("events round-trip, including file names with separators and non-ASCII text")
+    void testRoundTrip() {
+        UploadCompletedEvent event = new UploadCompletedEvent("upload-1", "a|b|c – ビデオ.mp4", 1_760_000_000_000L);
+
+        byte[] bytes = serde.serialize("topic", event);
+
+        assertEquals(event, serde.deserialize("topic", bytes));
+        assertNull(serde.serialize("topic", null));
+        assertNull(serde.deserialize("topic", null));
+    }
+
+    @Test
+    @DisplayName("unknown versions and truncated records are rejected")
+    void testMalformed() {
+        byte[] bytes = serde.serialize("topic", new UploadCompletedEvent("upload-1", "video.mp4", 1L));
+
+        byte[] unknownVersion = bytes.clone();
+        unknownVersion[0] = 9;
+        assertThrows(SerializationException.class, () -> serde.deserialize("topic", unknownVersion));
+        assertThrows(SerializationException.class,
+                () -> serde.deserialize("topic", Arrays.copyOf(bytes, bytes.length - 3)));
+        assertThrows(SerializationException.class,
+                () -> serde.deserialize("topic", new byte[]{UploadCompletedEventSerde.VERSION, 0x7f, 0, 0, 0}));
+    }
+}
@@ -0,0 +1,86 @@
+package com.streamvault.backend.middleware;
+
+import com.streamvault.backend.config.RateLimitProperties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RateLimiterFilterTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private RateLimiterFilter filter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setSyncInterval(Duration.ofHours(1));
+        properties.setDefaultRoute(new RateLimitProperties.Route("default", "/**", 2, Duration.ofHours(1)));
+        properties.setRoutes(List.of(
+                new RateLimitProperties.Route("stream", "/api/videos/stream/**", 5, Duration.ofHours(1))));
+
+        filter = new RateLimiterFilter(redisTemplate, properties);
+        filter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        filter.stop();
+    }
+
+    @Test
+    void rejectsOnceTheLocalBucketIsEmptyWithoutCallingRedis() throws Exception {
+        assertEquals(200, perform("/api/videos/1").getStatus());
+        assertEquals(200, perform("/api/videos/1").getStatus());
+
+        MockHttpServletResponse rejected = perform("/api/videos/1");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("0", rejected.getHeader("X-RateLimit-Remaining"));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void routesHaveTheirOwnLimits() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform("/api/videos/stream/1").getStatus());
+        }
+        assertEquals(429, perform("/api/videos/stream/1").getStatus());
+        assertEquals(200, perform("/api/files/status").getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void syncAppliesTheClusterWideCount() throws Exception {
+        assertEquals(200, perform("/api/videos/stream/1").getStatus());
+
+        // Other nodes already admitted this client's full allowance
+        when(redisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                anyList(), any(Object[].class))).thenReturn(List.of(6L));
+        filter.sync();
+
+        assertEquals(429, perform("/api/videos/stream/1").getStatus());
+    }
+
+    private MockHttpServletResponse perform(String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,41 @@
+package com.streamvault.backend.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingEmbeddingModelTest {
+
+    private final HashingEmbeddingModel model = new HashingEmbeddingModel(384);
+
+    @Test
+    @DisplayName("embeddings are unit length and deterministic")
+    void testUnitLength() {
+        float[] first = model.embed("Big Buck Bunny");
+        float[] second = model.embed("Big Buck Bunny");
+
+        assertEquals(384, first.length);
+        assertArrayEquals(first, second);
+        assertEquals(1.0, dot(first, first), 1e-5);
+        assertEquals(1.0, dot(model.embed(""), model.embed("")), 1e-5);
+    }
+
+    @Test
+    @DisplayName("texts sharing words and stems are closer than unrelated texts")
+    void testSimilarity() {
+        float[] query = model.embed("cooking pasta");
+        float[] related = model.embed("How to cook fresh pasta at home");
+        float[] unrelated = model.embed("Mountain biking downhill race");
+
+        assertTrue(dot(query, related) > dot(query, unrelated) + 0.2);
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
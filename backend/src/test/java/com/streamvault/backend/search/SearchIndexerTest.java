@@ -0,0 +1,161 @@
+package com.streamvault.backend.search;
+
+import com.streamvault.backend.model.SearchOutboxEvent;
+import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.repository.SearchOutboxRepository;
+import com.streamvault.backend.repository.VideoRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SearchIndexerTest {
+
+    @Mock
+    private SearchOutboxRepository outboxRepository;
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private VideoIndexService videoIndexService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ObjectProvider<SemanticSearchService> semanticSearchProvider;
+
+    @Mock
+    private SemanticSearchService semanticSearchService;
+
+    @InjectMocks
+    private SearchIndexer searchIndexer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(searchIndexer, "batchSize", 10);
+        ReflectionTestUtils.setField(searchIndexer, "initialBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(searchIndexer, "maxBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(searchIndexer, "maxAttempts", 10);
+        doAnswer(inv -> {
+            inv.<Consumer<SemanticSearchService>>getArgument(0).accept(semanticSearchService);
+            return null;
+        }).when(semanticSearchProvider).ifAvailable(any());
+    }
+
+    @Test
+    @DisplayName("drainBatch coalesces events per video into one bulk write and deletes them")
+    void testDrainBatchCoalesces() {
+        List<SearchOutboxEvent> events = List.of(event(1L), event(2L), event(1L));
+        when(outboxRepository.claimBatch(any(), eq(10))).thenReturn(events);
+        VideoEntity video = new VideoEntity();
+        video.setId(1L);
+        when(videoRepository.findAllWithFileByIdIn(Set.of(1L, 2L))).thenReturn(List.of(video));
+
+        assertFalse(searchIndexer.drainBatch());
+
+        verify(videoIndexService).indexVideos(List.of(video));
+        verify(videoIndexService).removeVideos(Set.of(2L));
+        verify(semanticSearchService).indexVideos(List.of(video));
+        verify(semanticSearchService).removeVideos(Set.of(2L));
+        verify(outboxRepository).deleteAllInBatch(events);
+    }
+
+    @Test
+    @DisplayName("drainBatch keeps failed events and schedules a retry with backoff")
+    void testDrainBatchFailure() {
+        SearchOutboxEvent event = event(1L);
+        event.setAttempts(2);
+        when(outboxRepository.claimBatch(any(), eq(10))).thenReturn(List.of(event));
+        when(videoRepository.findAllWithFileByIdIn(any())).thenReturn(List.of());
+        doThrow(new RuntimeException("es down")).when(videoIndexService).removeVideos(any());
+
+        LocalDateTime before = LocalDateTime.now();
+        assertFalse(searchIndexer.drainBatch());
+
+        assertEquals(3, event.getAttempts());
+        assertEquals("es down", event.getLastError());
+        assertFalse(event.getNextAttemptAt().isBefore(before.plusSeconds(4)));
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+        verify(outboxRepository).saveAll(List.of(event));
+    }
+
+    @Test
+    @DisplayName("drainBatch deletes the events bulk indexing accepted and retries only the rejected videos")
+    void testDrainBatchPartialFailure() {
+        SearchOutboxEvent ok = event(1L);
+        SearchOutboxEvent poison = event(2L);
+        when(outboxRepository.claimBatch(any(), eq(10))).thenReturn(List.of(ok, poison));
+        when(videoRepository.findAllWithFileByIdIn(any())).thenReturn(List.of(video(1L), video(2L)));
+        doThrow(new BulkFailureException("bulk failed",
+                Map.of("2", new BulkFailureException.FailureDetails(400, "mapper_parsing_exception"))))
+                .when(videoIndexService).indexVideos(any());
+
+        assertFalse(searchIndexer.drainBatch());
+
+        verify(outboxRepository).deleteAllInBatch(List.of(ok));
+        verify(outboxRepository).saveAll(List.of(poison));
+        assertEquals(1, poison.getAttempts());
+        assertEquals("mapper_parsing_exception", poison.getLastError());
+        assertNotNull(poison.getNextAttemptAt());
+        assertEquals(0, ok.getAttempts());
+    }
+
+    @Test
+    @DisplayName("an event that runs out of attempts is parked with its error instead of retried")
+    void testDrainBatchGivesUp() {
+        ReflectionTestUtils.setField(searchIndexer, "maxAttempts", 3);
+        SearchOutboxEvent event = event(1L);
+        event.setAttempts(2);
+        when(outboxRepository.claimBatch(any(), eq(10))).thenReturn(List.of(event));
+        when(videoRepository.findAllWithFileByIdIn(any())).thenReturn(List.of(video(1L)));
+        doThrow(new BulkFailureException("bulk failed",
+                Map.of("1", new BulkFailureException.FailureDetails(400, "mapper_parsing_exception"))))
+                .when(videoIndexService).indexVideos(any());
+
+        searchIndexer.drainBatch();
+
+        assertEquals(3, event.getAttempts());
+        assertNull(event.getNextAttemptAt());
+        assertEquals("mapper_parsing_exception", event.getLastError());
+        verify(outboxRepository).saveAll(List.of(event));
+    }
+
+    @Test
+    @DisplayName("backoff doubles per attempt and is capped")
+    void testBackoff() {
+        assertEquals(Duration.ofSeconds(1), searchIndexer.backoff(1));
+        assertEquals(Duration.ofSeconds(8), searchIndexer.backoff(4));
+        assertEquals(Duration.ofMinutes(5), searchIndexer.backoff(30));
+    }
+
+    private VideoEntity video(Long id) {
+        VideoEntity video = new VideoEntity();
+        video.setId(id);
+        return video;
+    }
+
+    private SearchOutboxEvent event(Long videoId) {
+        return SearchOutboxEvent.builder().videoId(videoId).build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.streamvault.backend.search;
+
+import com.streamvault.backend.config.SemanticSearchConfig;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore;
+
+import redis.clients.jedis.JedisPooled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query latency of the Redis HNSW index at scale. Needs a redis-stack instance and is skipped
+ * unless run explicitly:
+ * <pre>
+ * mvn test -Dtest=SemanticSearchBenchmarkTest -Dbenchmark.vector=true \
+ *     -Dbenchmark.vector.count=1000000 -Dbenchmark.redis.host=localhost
+ * </pre>
+ * Vectors are loaded once into a separate index and reused by later runs.
+ */
+@EnabledIfSystemProperty(named = "benchmark.vector", matches = "true")
+class SemanticSearchBenchmarkTest {
+
+    private static final String INDEX_NAME = "video-embeddings-benchmark";
+    private static final String PREFIX = "video-embedding-benchmark:";
+    private static final int LOAD_BATCH = 1_000;
+    private static final int WARMUP_QUERIES = 100;
+
+    private static final String[] WORDS = {
+            "cooking", "pasta", "travel", "japan", "mountain", "bike", "race", "guitar", "lesson", "piano",
+            "football", "highlights", "review", "unboxing", "phone", "camera", "drone", "city", "night", "walk",
+            "tutorial", "java", "spring", "kafka", "redis", "game", "speedrun", "documentary", "ocean", "shark",
+            "cat", "dog", "puppy", "training", "workout", "yoga", "morning", "routine", "vlog", "family",
+            "garden", "tomato", "bread", "baking", "coffee", "espresso", "science", "space", "rocket", "launch",
+            "history", "rome", "castle", "music", "live", "concert", "news", "weather", "storm", "winter"
+    };
+
+    @Test
+    @DisplayName("vector query latency at scale")
+    void benchmarkQueryLatency() {
+        int vectors = Integer.getInteger("benchmark.vector.count", 1_000_000);
+        int queries = Integer.getInteger("benchmark.vector.queries", 1_000);
+        int topK = Integer.getInteger("benchmark.vector.top-k", 10);
+        String host = System.getProperty("benchmark.redis.host", "localhost");
+        int port = Integer.getInteger("benchmark.redis.port", 6379);
+
+        HashingEmbeddingModel model = new HashingEmbeddingModel(384);
+        try (JedisPooled jedis = new JedisPooled(host, port)) {
+            RedisVectorStore store = SemanticSearchConfig.vectorStoreBuilder(jedis, model)
+                    .indexName(INDEX_NAME)
+                    .prefix(PREFIX)
+                    .build();
+            store.afterPropertiesSet();
+
+            load(store, jedis, vectors);
+
+            Random random = new Random(7);
+            FilterExpressionBuilder b = new FilterExpressionBuilder();
+            for (int i = 0; i < WARMUP_QUERIES; i++) {
+                store.similaritySearch(SearchRequest.builder().query(randomText(random, 3)).topK(topK).build());
+            }
+
+            long[] plain = new long[queries];
+            long[] filtered = new long[queries];
+            for (int i = 0; i < queries; i++) {
+                String query = randomText(random, 2 + random.nextInt(3));
+
+                long start = System.nanoTime();
+                List<Document> results = store.similaritySearch(
+                        SearchRequest.builder().query(query).topK(topK).build());
+                plain[i] = System.nanoTime() - start;
+                assertFalse(results.isEmpty());
+
+                start = System.nanoTime();
+                store.similaritySearch(SearchRequest.builder().query(query).topK(topK)
+                        .filterExpression(b.and(b.eq("readyForStreaming", "true"), b.gte("height", 720)).build())
+                        .build());
+                filtered[i] = System.nanoTime() - start;
+            }
+
+            report("unfiltered", vectors, topK, plain);
+            report("filtered", vectors, topK, filtered);
+        }
+    }
+
+    private void load(RedisVectorStore store, JedisPooled jedis, int vectors) {
+        long existing = Long.parseLong(String.valueOf(jedis.ftInfo(INDEX_NAME).get("num_docs")));
+        if (existing >= vectors) {
+            System.out.printf("Reusing %d vectors in %s%n", existing, INDEX_NAME);
+            return;
+        }
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        List<Document> batch = new ArrayList<>(LOAD_BATCH);
+        for (long id = existing; id < vectors; id++) {
+            String text = randomText(random, 3 + random.nextInt(6)) + "\n" + randomText(random, 10 + random.nextInt(10));
+            batch.add(new Document(String.valueOf(id), text, Map.of(
+                    "readyForStreaming", String.valueOf(random.nextBoolean()),
+                    "durationSeconds", 30 + random.nextInt(3600),
+                    "height", random.nextBoolean() ? 720 : 1080)));
+            if (batch.size() == LOAD_BATCH) {
+                store.add(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            store.add(batch);
+        }
+        System.out.printf("Loaded %d vectors in %d s%n", vectors - existing,
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    private static String randomText(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void report(String label, int vectors, int topK, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s: %d vectors, top %d, %d queries: p50=%.2f ms p95=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                label, vectors, topK, sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,179 @@
+package com.streamvault.backend.search;
+
+import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.repository.VideoRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class VideoIndexServiceTest {
+
+    @Mock
+    private VideoSearchRepository videoSearchRepository;
+
+    @Mock
+    private VideoRepository videoRepository;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private ObjectProvider<SemanticSearchService> semanticSearchProvider;
+
+    @Mock
+    private SemanticSearchService semanticSearchService;
+
+    @InjectMocks
+    private VideoIndexService videoIndexService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(videoIndexService, "semanticCandidates", 100);
+    }
+
+    @Test
+    @DisplayName("searchVideos hydrates all hits in one query and keeps relevance order")
+    void testSearchVideosBatchHydration() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        mockHits(doc("3"), doc("1"), doc("2"));
+        // Postgres returns them in id order, and video 2 has been deleted since it was indexed
+        when(videoRepository.findAllWithFileByIdIn(List.of(3L, 1L, 2L)))
+                .thenReturn(List.of(video(1L), video(3L)));
+
+        Page<VideoEntity> result = videoIndexService.searchVideos(VideoSearchCriteria.of("cat"), pageable).page();
+
+        assertEquals(List.of(3L, 1L), result.getContent().stream().map(VideoEntity::getId).toList());
+        verify(videoRepository, times(1)).findAllWithFileByIdIn(anyCollection());
+        verify(videoRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("searchProjected returns a cursor for the next page when the page is full")
+    void testSearchProjectedCursor() {
+        mockHits(doc("7"));
+
+        SearchResult<VideoDocument> result = videoIndexService.searchProjected(
+                VideoSearchCriteria.of("cat"), PageRequest.of(0, 1));
+
+        assertEquals("7", result.page().getContent().get(0).getId());
+        assertArrayEquals(new Object[]{1.5, "7"}, VideoIndexService.decodeCursor(result.nextCursor()));
+        verifyNoInteractions(videoRepository);
+    }
+
+    @Test
+    @DisplayName("searchProjected falls back to the Postgres full-text index when Elasticsearch fails")
+    void testSearchProjectedFallback() {
+        PageRequest pageable = PageRequest.of(0, 10);
+        when(elasticsearchOperations.search(any(Query.class), eq(VideoDocument.class)))
+                .thenThrow(new RuntimeException("es down"));
+        VideoEntity video = video(4L);
+        when(videoRepository.fullTextSearch("big:* & buck:*", true, null, null, null, pageable))
+                .thenReturn(new PageImpl<>(List.of(video), pageable, 1));
+
+        SearchResult<VideoDocument> result = videoIndexService.searchProjected(
+                new VideoSearchCriteria("Big Buck!", true, null, null, null, null, SearchMode.KEYWORD), pageable);
+
+        assertEquals("4", result.page().getContent().get(0).getId());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    @DisplayName("a cursor request fails instead of restarting at page one of the database search")
+    void testCursorWithoutElasticsearch() {
+        when(elasticsearchOperations.search(any(Query.class), eq(VideoDocument.class)))
+                .thenThrow(new RuntimeException("es down"));
+        VideoSearchCriteria criteria = new VideoSearchCriteria(
+                "cat", null, null, null, null, VideoIndexService.encodeCursor(List.of(1.5, "7")), SearchMode.KEYWORD);
+
+        assertThrows(IllegalStateException.class, () -> videoIndexService.searchProjected(criteria, PageRequest.of(0, 10)));
+        assertThrows(IllegalStateException.class, () -> videoIndexService.searchVideos(criteria, PageRequest.of(0, 10)));
+        verifyNoInteractions(videoRepository);
+    }
+
+    @Test
+    @DisplayName("an invalid cursor is rejected instead of falling back")
+    void testInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> videoIndexService.searchProjected(
+                new VideoSearchCriteria("cat", null, null, null, null, "!!", SearchMode.KEYWORD), PageRequest.of(0, 10)));
+        verifyNoInteractions(elasticsearchOperations, videoRepository);
+    }
+
+    @Test
+    @DisplayName("hybrid search fuses keyword and semantic rankings and loads the page from the index")
+    void testHybridSearch() {
+        when(semanticSearchProvider.getIfAvailable()).thenReturn(semanticSearchService);
+        mockHits(doc("1"), doc("2"), doc("3"));
+        VideoSearchCriteria criteria = new VideoSearchCriteria("cat", null, null, null, null, null, SearchMode.HYBRID);
+        when(semanticSearchService.search(criteria, 100)).thenReturn(List.of(3L, 4L, 1L));
+        when(videoSearchRepository.findAllById(List.of("1", "3")))
+                .thenReturn(List.of(doc("3"), doc("1")));
+
+        SearchResult<VideoDocument> result = videoIndexService.searchProjected(criteria, PageRequest.of(0, 2));
+
+        // 1 and 3 appear in both rankings, so they outrank 2 and 4
+        assertEquals(List.of("1", "3"), result.page().getContent().stream().map(VideoDocument::getId).toList());
+        assertEquals(4, result.page().getTotalElements());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    @DisplayName("semantic search is rejected when the vector store is not enabled")
+    void testSemanticSearchDisabled() {
+        assertThrows(IllegalArgumentException.class, () -> videoIndexService.searchVideos(
+                new VideoSearchCriteria("cat", null, null, null, null, null, SearchMode.SEMANTIC), PageRequest.of(0, 10)));
+        verifyNoInteractions(elasticsearchOperations, videoRepository);
+    }
+
+    @Test
+    @DisplayName("reciprocal rank fusion favours documents ranked well in several lists")
+    void testReciprocalRankFusion() {
+        assertEquals(List.of(2L, 1L, 4L, 3L),
+                VideoIndexService.reciprocalRankFusion(List.of(List.of(1L, 2L, 3L), List.of(2L, 4L))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockHits(VideoDocument... docs) {
+        SearchHits<VideoDocument> hits = mock(SearchHits.class);
+        List<SearchHit<VideoDocument>> hitList = new java.util.ArrayList<>();
+        for (VideoDocument doc : docs) {
+            SearchHit<VideoDocument> hit = mock(SearchHit.class);
+            when(hit.getContent()).thenReturn(doc);
+            when(hit.getSortValues()).thenReturn(List.of(1.5, doc.getId()));
+            hitList.add(hit);
+        }
+        when(hits.getSearchHits()).thenReturn(hitList);
+        when(hits.getSearchHit(anyInt())).thenAnswer(inv -> hitList.get(inv.getArgument(0)));
+        when(hits.getTotalHits()).thenReturn((long) docs.length);
+        when(elasticsearchOperations.search(any(Query.class), eq(VideoDocument.class))).thenReturn(hits);
+    }
+
+    private VideoDocument doc(String id) {
+        return VideoDocument.builder().id(id).title("video " + id).build();
+    }
+
+    private VideoEntity video(Long id) {
+        VideoEntity video = new VideoEntity();
+        video.setId(id);
+        return video;
+    }
+}
@@ -0,0 +1,241 @@
+package com.streamvault.backend.service;
+
+import com.streamvault.backend.model.FileEntity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioAsyncClient;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import okhttp3.Headers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AsyncVideoStreamerTest {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    @Mock
+    private MinioAsyncClient minioAsyncClient;
+
+    private AsyncVideoStreamer streamer;
+    private MockHttpServletRequest request;
+    private NonBlockingResponse response;
+    private final byte[] content = new byte[10 * BUFFER_SIZE + 100];
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Runs pump reads inline so each test is deterministic
+        streamer = new AsyncVideoStreamer(minioAsyncClient, new SimpleMeterRegistry(), DataSize.ofBytes(BUFFER_SIZE),
+                Duration.ofMinutes(1), DataSize.ofMegabytes(4), Runnable::run);
+        request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        response = new NonBlockingResponse();
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+    }
+
+    @Test
+    @DisplayName("a single range is fetched from MinIO and written with 206 headers")
+    void testStreamsRange() throws Exception {
+        CountingStream source = stubObject(2_000, 5_000);
+
+        assertTrue(streamer.stream(file(), "bytes=2000-6999", request, response));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2000-6999/" + content.length, response.getHeader("Content-Range"));
+        assertEquals(5_000, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(content, 2_000, 7_000), response.out.written.toByteArray());
+        assertFalse(request.isAsyncStarted());
+        assertTrue(source.closed);
+
+        ArgumentCaptor<GetObjectArgs> args = ArgumentCaptor.forClass(GetObjectArgs.class);
+        verify(minioAsyncClient).getObject(args.capture());
+        assertEquals(2_000L, args.getValue().offset());
+        assertEquals(5_000L, args.getValue().length());
+    }
+
+    @Test
+    @DisplayName("MinIO is read no further than two buffers ahead of a slow client")
+    void testBackpressure() throws Exception {
+        CountingStream source = stubObject(0, content.length);
+        response.out.pauseAfterWrite = true;
+
+        assertTrue(streamer.stream(file(), null, request, response));
+        assertEquals(200, response.getStatus());
+
+        while (request.isAsyncStarted()) {
+            long ahead = source.read - response.out.written.size();
+            assertTrue(ahead <= 2L * BUFFER_SIZE, "read " + ahead + " bytes ahead of the client");
+            response.out.resume();
+        }
+        assertArrayEquals(content, response.out.written.toByteArray());
+    }
+
+    @Test
+    @DisplayName("short reads from MinIO are written as they arrive instead of waiting for a full buffer")
+    void testShortReads() throws Exception {
+        CountingStream source = stubObject(0, content.length);
+        source.maxRead = 100;
+
+        assertTrue(streamer.stream(file(), null, request, response));
+
+        assertArrayEquals(content, response.out.written.toByteArray());
+        assertEquals(100, response.out.largestWrite);
+        assertFalse(request.isAsyncStarted());
+    }
+
+    @Test
+    @DisplayName("multipart ranges and chunked files are left to the blocking path")
+    void testFallsBack() {
+        assertFalse(streamer.stream(file(), "bytes=0-9,20-29", request, response));
+
+        FileEntity chunked = file();
+        chunked.setStorageLayout(FileEntity.StorageLayout.CHUNKED);
+        assertFalse(streamer.stream(chunked, "bytes=0-9", request, response));
+
+        assertFalse(request.isAsyncStarted());
+        assertNull(response.getHeader("Content-Range"));
+        verifyNoInteractions(minioAsyncClient);
+    }
+
+    @Test
+    @DisplayName("a MinIO failure before any bytes are sent becomes a 500")
+    void testMinioFailure() throws Exception {
+        when(minioAsyncClient.getObject(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("minio down")));
+
+        assertTrue(streamer.stream(file(), "bytes=0-99", request, response));
+
+        assertEquals(500, response.getStatus());
+        assertNull(response.getHeader("Content-Range"));
+        assertFalse(request.isAsyncStarted());
+    }
+
+    private CountingStream stubObject(int offset, int length) throws Exception {
+        CountingStream source = new CountingStream(new ByteArrayInputStream(content, offset, length));
+        when(minioAsyncClient.getObject(any())).thenReturn(CompletableFuture.completedFuture(
+                new GetObjectResponse(Headers.of(), "files", "", "movie.mp4", source)));
+        return source;
+    }
+
+    private FileEntity file() {
+        return FileEntity.builder()
+                .id(1L)
+                .size((long) content.length)
+                .fileType("video/mp4")
+                .bucket("files")
+                .minioPath("movie.mp4")
+                .storageLayout(FileEntity.StorageLayout.OBJECT)
+                .build();
+    }
+
+    private static class CountingStream extends InputStream {
+        private final InputStream delegate;
+        long read;
+        int maxRead = Integer.MAX_VALUE;
+        boolean closed;
+
+        CountingStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, Math.min(len, maxRead));
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class NonBlockingResponse extends MockHttpServletResponse {
+        final NonBlockingOutput out = new NonBlockingOutput();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+
+    // Behaves like a container stream that reports not-ready after a write until resumed
+    private static class NonBlockingOutput extends ServletOutputStream {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        int largestWrite;
+        boolean pauseAfterWrite;
+        private boolean ready = true;
+        private WriteListener listener;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            this.listener = listener;
+            resume();
+        }
+
+        void resume() {
+            ready = true;
+            try {
+                listener.onWritePossible();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written.write(b, off, len);
+            largestWrite = Math.max(largestWrite, len);
+            if (pauseAfterWrite) {
+                ready = false;
+            }
+        }
+    }
+}
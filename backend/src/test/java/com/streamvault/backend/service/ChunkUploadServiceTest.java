@@ -0,0 +1,584 @@
+package com.streamvault.backend.service;
+
+import com.streamvault.backend.dto.DirectUploadResponse;
+import com.streamvault.backend.dto.UploadInitResponse;
+import com.streamvault.backend.exception.HashMismatchException;
+import com.streamvault.backend.kafka.FileUploadProducer;
+import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.model.TranscodeJob;
+import com.streamvault.backend.model.UploadStatus;
+import com.streamvault.backend.model.UploadStatus.MergeStage;
+import com.streamvault.backend.model.VideoEntity;
+import com.streamvault.backend.repository.UploadStatusRepository;
+import com.streamvault.backend.transcode.TranscodeJobCompletedEvent;
+import com.streamvault.backend.transcode.TranscodeScheduler;
+import com.streamvault.backend.util.Util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChunkUploadServiceTest {
+
+    private static final String UPLOAD_ID = "3f2a9c1e-upload";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private VideoService videoService;
+
+    @Mock
+    private UploadStatusRepository uploadStatusRepository;
+
+    @Mock
+    private FileUploadProducer fileUploadProducer;
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private ChunkDownloadPipeline chunkDownloadPipeline;
+
+    @Mock
+    private TranscodeScheduler transcodeScheduler;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ChunkUrlSigner chunkUrlSigner;
+
+    @TempDir
+    private Path workDir;
+
+    private ChunkUploadService service;
+    private UploadStatus row;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new ChunkUploadService(redisTemplate, fileService, videoService, uploadStatusRepository,
+                fileUploadProducer, minioClient, chunkDownloadPipeline, transcodeScheduler,
+                new SimpleMeterRegistry(), transactionTemplate, chunkUrlSigner);
+        ReflectionTestUtils.setField(service, "mergeWorkDir", workDir.toString());
+        ReflectionTestUtils.setField(service, "hlsEnabled", true);
+        ReflectionTestUtils.setField(service, "maxDirectChunkSize", DataSize.ofMegabytes(10));
+
+        row = UploadStatus.builder().uploadId(UPLOAD_ID).status(UploadStatus.Status.PROCESSING).build();
+        when(uploadStatusRepository.findByUploadId(UPLOAD_ID)).thenAnswer(inv -> Optional.of(row));
+        when(uploadStatusRepository.findForUpdate(UPLOAD_ID)).thenAnswer(inv -> Optional.of(row));
+        when(uploadStatusRepository.save(any(UploadStatus.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> ((TransactionCallback<?>) inv.getArgument(0)).doInTransaction(null));
+
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(hashOperations.entries("upload:" + UPLOAD_ID)).thenReturn(Map.of("0", UPLOAD_ID + "/chunk_0"));
+        when(minioClient.removeObjects(any())).thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("a redelivery after STORED resumes at indexing without downloading or storing again")
+    void testResumeFromStored() throws Exception {
+        row.setMergeStage(MergeStage.STORED);
+        row.setHash("abc");
+        row.setFileId(11L);
+        FileEntity file = FileEntity.builder().id(11L).fileName("movie.mp4").category(FileEntity.FileCategory.VIDEO).build();
+        VideoEntity video = VideoEntity.builder().id(21L).file(file).build();
+        when(fileService.getFile(11L)).thenReturn(file);
+        when(videoService.createPendingVideo(file)).thenReturn(video);
+        when(videoService.getVideo(21L)).thenReturn(video);
+        when(transcodeScheduler.findJob(UPLOAD_ID, TranscodeJob.Type.HLS_LADDER)).thenReturn(Optional.empty());
+
+        service.mergeChunksAndSaveFile(UPLOAD_ID, "movie.mp4");
+
+        verify(chunkDownloadPipeline, never()).fetchInOrder(any(), any(), any(), any());
+        verify(fileService, never()).putFile(any(), any(), any());
+        verify(fileService, never()).registerFile(any(), any(), any(), any(), any(), any());
+        verify(transcodeScheduler).submitHlsLadder(UPLOAD_ID, video);
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.COMPLETED);
+        assertEquals(MergeStage.INDEXED, row.getMergeStage());
+        assertEquals(21L, row.getVideoId());
+    }
+
+    @Test
+    @DisplayName("a redelivery after INDEXED only finishes cleanup and does not queue a second ladder")
+    void testResumeFromIndexed() throws Exception {
+        row.setMergeStage(MergeStage.INDEXED);
+        row.setVideoId(21L);
+        when(transcodeScheduler.findJob(UPLOAD_ID, TranscodeJob.Type.HLS_LADDER))
+                .thenReturn(Optional.of(TranscodeJob.builder().id(5L).build()));
+
+        service.mergeChunksAndSaveFile(UPLOAD_ID, "movie.mp4");
+
+        verify(videoService, never()).createPendingVideo(any());
+        verify(transcodeScheduler, never()).submitHlsLadder(any(), any());
+        verify(redisTemplate).delete(List.of("upload:" + UPLOAD_ID, "upload:" + UPLOAD_ID + ":sizes",
+                "upload:" + UPLOAD_ID + ":bitmap", "upload:" + UPLOAD_ID + ":active"));
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("a redelivery of a completed upload is a no-op")
+    void testCompletedIsNoOp() throws Exception {
+        row.setStatus(UploadStatus.Status.COMPLETED);
+
+        service.mergeChunksAndSaveFile(UPLOAD_ID, "movie.mp4");
+
+        verifyNoInteractions(chunkDownloadPipeline, fileService, transactionTemplate);
+        verify(uploadStatusRepository, never()).updateStatus(any(), any());
+    }
+
+    @Test
+    @DisplayName("a redelivery while the video is being transcoded does not submit a second job")
+    void testTranscodeInFlight() throws Exception {
+        row.setMergeStage(MergeStage.DOWNLOADED);
+        row.setStatus(UploadStatus.Status.TRANSCODING);
+        when(transcodeScheduler.findJob(UPLOAD_ID))
+                .thenReturn(Optional.of(TranscodeJob.builder().id(4L).status(TranscodeJob.Status.RUNNING).build()));
+
+        service.mergeChunksAndSaveFile(UPLOAD_ID, "movie.mp4");
+
+        verify(transcodeScheduler, never()).submit(any(), any(), any(), any());
+        verify(chunkDownloadPipeline, never()).fetchInOrder(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("a failure storing a transcoded video re-publishes the upload and an immediate redelivery stores the kept output")
+    void testStoreFailureAfterTranscode() throws Exception {
+        row.setMergeStage(MergeStage.DOWNLOADED);
+        row.setHash("abc");
+        row.setStatus(UploadStatus.Status.TRANSCODING);
+        // The scheduler finishes the job before it hands off the output
+        TranscodeJob job = TranscodeJob.builder().id(6L).uploadId(UPLOAD_ID).fileName("movie.mp4")
+                .type(TranscodeJob.Type.UPLOAD).status(TranscodeJob.Status.SUCCEEDED).build();
+        Path output = Files.write(workDir.resolve("ffmpeg-output.mp4"), new byte[]{1, 2, 3});
+        Path kept = workDir.resolve(UPLOAD_ID + "_transcoded.mp4");
+        doThrow(new IOException("minio down")).doNothing().when(fileService).putFile(any(), any(), any());
+        doAnswer(inv -> {
+            job.setStatus(TranscodeJob.Status.FAILED);
+            return null;
+        }).when(transcodeScheduler).markOutputNotStored(eq(job), any());
+
+        when(transcodeScheduler.findJob(UPLOAD_ID)).thenAnswer(inv -> Optional.of(job));
+        when(transcodeScheduler.findJob(UPLOAD_ID, TranscodeJob.Type.HLS_LADDER)).thenReturn(Optional.empty());
+        FileEntity file = FileEntity.builder().id(12L).category(FileEntity.FileCategory.VIDEO).build();
+        when(fileService.registerFile(eq("movie.mp4"), any(), eq(3L), eq("abc"), eq(UPLOAD_ID + "_movie.mp4"),
+                eq(FileEntity.FileCategory.VIDEO))).thenReturn(file);
+        when(fileService.getFile(12L)).thenReturn(file);
+        when(videoService.createPendingVideo(file)).thenReturn(VideoEntity.builder().id(22L).file(file).build());
+
+        // The redelivered event is consumed before the listener has even returned
+        doAnswer(inv -> {
+            assertTrue(Files.exists(kept));
+            service.mergeChunksAndSaveFile(UPLOAD_ID, "movie.mp4");
+            return null;
+        }).when(fileUploadProducer).sendUploadCompleted(UPLOAD_ID, "movie.mp4");
+
+        service.onTranscodeCompleted(new TranscodeJobCompletedEvent(job, output));
+
+        verify(transcodeScheduler).markOutputNotStored(eq(job), eq("minio down"));
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.PROCESSING);
+        verify(transcodeScheduler, never()).submit(any(), any(), any(), any());
+        verify(chunkDownloadPipeline, never()).fetchInOrder(any(), any(), any(), any());
+        verify(fileService, times(2)).putFile(eq(UPLOAD_ID + "_movie.mp4"), any(), any());
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.COMPLETED);
+        assertEquals(22L, row.getVideoId());
+        assertFalse(Files.exists(kept));
+    }
+
+    @Test
+    @DisplayName("a file is downloaded, checkpointed and stored under a name derived from the uploadId")
+    void testFreshMerge() throws Exception {
+        ReflectionTestUtils.setField(service, "composeMergeEnabled", false);
+        when(fileService.registerFile(eq("notes.txt"), any(), anyLong(), any(), eq(UPLOAD_ID + "_notes.txt"),
+                eq(FileEntity.FileCategory.FILE))).thenReturn(FileEntity.builder().id(3L).build());
+        when(fileService.getFile(3L)).thenReturn(FileEntity.builder().id(3L).category(FileEntity.FileCategory.FILE).build());
+
+        service.mergeChunksAndSaveFile(UPLOAD_ID, "notes.txt");
+
+        verify(chunkDownloadPipeline).fetchInOrder(eq("upload-chunks"), eq(List.of(UPLOAD_ID + "/chunk_0")), eq(UPLOAD_ID), any());
+        verify(fileService).putFile(eq(UPLOAD_ID + "_notes.txt"), any(), any());
+        assertEquals(MergeStage.INDEXED, row.getMergeStage());
+        assertEquals(3L, row.getFileId());
+        assertNotNull(row.getHash());
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("direct uploads get one presigned URL per chunk object")
+    void testInitialiseDirectUpload() {
+        ReflectionTestUtils.setField(service, "directUploadsEnabled", true);
+        row.setStatus(UploadStatus.Status.INITIATED);
+        when(uploadStatusRepository.findByUploadId(anyString())).thenAnswer(inv -> Optional.of(row));
+        when(chunkUrlSigner.presignPut(eq("upload-chunks"), anyString()))
+                .thenAnswer(inv -> "http://minio/" + inv.getArgument(1));
+        when(chunkUrlSigner.getExpiry()).thenReturn(Duration.ofHours(1));
+
+        DirectUploadResponse response = service.initialiseDirectUpload(3);
+
+        assertEquals(List.of(1, 2, 3), List.copyOf(response.chunkUrls().keySet()));
+        assertEquals("http://minio/" + response.uploadId() + "/chunk_2", response.chunkUrls().get(2));
+    }
+
+    @Test
+    @DisplayName("chunk URLs are only issued while the upload still takes chunks")
+    void testPresignAfterComplete() {
+        ReflectionTestUtils.setField(service, "directUploadsEnabled", true);
+
+        assertThrows(IllegalStateException.class, () -> service.presignChunks(UPLOAD_ID, List.of(1)));
+        verifyNoInteractions(chunkUrlSigner);
+    }
+
+    @Test
+    @DisplayName("completing a direct upload with an oversized chunk removes it and queues nothing")
+    void testOversizedDirectChunk() throws Exception {
+        ReflectionTestUtils.setField(service, "directUploadsEnabled", true);
+        List<Result<Item>> listing = List.of(listed(UPLOAD_ID + "/chunk_1"),
+                listed(UPLOAD_ID + "/chunk_2", DataSize.ofMegabytes(11).toBytes()));
+        when(minioClient.listObjects(any())).thenReturn(listing);
+
+        assertThrows(IllegalArgumentException.class, () -> service.completeUpload(UPLOAD_ID, "movie.mp4"));
+
+        verify(minioClient).removeObjects(any());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+        verify(fileUploadProducer, never()).sendUploadCompleted(any(), any());
+    }
+
+    @Test
+    @DisplayName("direct uploads are rejected while disabled")
+    void testDirectUploadDisabled() {
+        assertThrows(IllegalStateException.class, () -> service.initialiseDirectUpload(3));
+        verifyNoInteractions(chunkUrlSigner);
+    }
+
+    @Test
+    @DisplayName("completing a direct upload records the chunks found in the bucket")
+    void testCompleteRegistersDirectChunks() throws Exception {
+        ReflectionTestUtils.setField(service, "directUploadsEnabled", true);
+        List<Result<Item>> listing = List.of(
+                listed(UPLOAD_ID + "/chunk_1"), listed(UPLOAD_ID + "/chunk_2"), listed(UPLOAD_ID + "/stray.tmp"));
+        when(minioClient.listObjects(any())).thenReturn(listing);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(2L);
+
+        service.completeUpload(UPLOAD_ID, "movie.mp4");
+
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("upload:" + UPLOAD_ID, "upload:" + UPLOAD_ID + ":sizes", "upload:" + UPLOAD_ID + ":bitmap",
+                        "upload:" + UPLOAD_ID + ":active")),
+                eq("86400"), eq("900"), eq("1"), eq(UPLOAD_ID + "/chunk_1"), eq("1024"), eq("2"), eq(UPLOAD_ID + "/chunk_2"), eq("1024"));
+        verify(fileUploadProducer).sendUploadCompleted(UPLOAD_ID, "movie.mp4");
+    }
+
+    @Test
+    @DisplayName("uploaded and missing chunks are read from the chunk bitmap")
+    void testChunkBitmap() {
+        // Bits 1, 2 and 9 set, numbered from the most significant bit as SETBIT does
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(new byte[]{0b0110_0000, 0b0100_0000});
+
+        assertEquals(List.of(1, 2, 9), service.getUploadedChunks(UPLOAD_ID));
+        assertEquals(List.of(3, 4, 5, 6, 7, 8, 10, 11), service.getMissingChunks(UPLOAD_ID, 11));
+    }
+
+    @Test
+    @DisplayName("a chunk number taken by an earlier send is reported as a repeat without writing it again")
+    void testSaveChunkRepeat() throws Exception {
+        MockMultipartFile chunk = new MockMultipartFile("file", new byte[]{1, 2, 3});
+        when(redisTemplate.execute(any(RedisScript.class), eq(chunkLeaseKeys(4)), any(Object[].class)))
+                .thenReturn(1L, 0L);
+        when(redisTemplate.execute(any(RedisScript.class), eq(confirmKeys(4)), any(Object[].class))).thenReturn(1L);
+
+        assertTrue(service.saveChunk(UPLOAD_ID, 4, chunk));
+        assertFalse(service.saveChunk(UPLOAD_ID, 4, chunk));
+        verify(minioClient, times(1)).putObject(any());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), eq(confirmKeys(4)),
+                eq("86400"), eq("900"), eq("4"), eq(UPLOAD_ID + "/chunk_4"), eq("3"), anyString());
+        verify(hashOperations, never()).hasKey(any(), any());
+    }
+
+    @Test
+    @DisplayName("a chunk whose write fails gives its number back for the next send")
+    void testSaveChunkWriteFailure() throws Exception {
+        MockMultipartFile chunk = new MockMultipartFile("file", new byte[]{1, 2, 3});
+        when(redisTemplate.execute(any(RedisScript.class), eq(chunkLeaseKeys(4)), any(Object[].class))).thenReturn(1L);
+        when(minioClient.putObject(any())).thenThrow(new IOException("minio down"));
+
+        assertThrows(RuntimeException.class, () -> service.saveChunk(UPLOAD_ID, 4, chunk));
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("upload:" + UPLOAD_ID + ":chunk:4")), anyString());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), eq(confirmKeys(4)), any(Object[].class));
+    }
+
+    private static List<String> chunkLeaseKeys(int chunkNumber) {
+        return List.of("upload:" + UPLOAD_ID, "upload:" + UPLOAD_ID + ":chunk:" + chunkNumber);
+    }
+
+    private static List<String> confirmKeys(int chunkNumber) {
+        String key = "upload:" + UPLOAD_ID;
+        return List.of(key, key + ":sizes", key + ":bitmap", key + ":active", key + ":chunk:" + chunkNumber);
+    }
+
+    @Test
+    @DisplayName("chunk numbers past MAX_CHUNKS are rejected and never read from the bitmap")
+    void testChunkNumberBounds() {
+        MockMultipartFile chunk = new MockMultipartFile("file", new byte[]{1});
+        byte[] bitmap = new byte[ChunkUploadService.MAX_CHUNKS];
+        Arrays.fill(bitmap, (byte) 0xff);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(bitmap);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.saveChunk(UPLOAD_ID, ChunkUploadService.MAX_CHUNKS + 1, chunk));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getMissingChunks(UPLOAD_ID, ChunkUploadService.MAX_CHUNKS + 1));
+        assertEquals(ChunkUploadService.MAX_CHUNKS + 1, service.getUploadedChunks(UPLOAD_ID).size());
+        verifyNoInteractions(minioClient);
+    }
+
+    @Test
+    @DisplayName("a declared hash of stored content returns the existing file without starting an upload")
+    void testInstantUpload() {
+        String hash = "a".repeat(64);
+        when(fileService.findByHash(hash)).thenReturn(Optional.of(FileEntity.builder().id(8L).build()));
+
+        UploadInitResponse response = service.initialiseUpload(hash.toUpperCase());
+
+        assertEquals(8L, response.existingFileId());
+        assertNull(response.uploadId());
+        verify(uploadStatusRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("a second upload of content already in flight is pointed at the first one but not blocked")
+    void testInFlightDuplicate() {
+        String hash = "b".repeat(64);
+        row.setStatus(UploadStatus.Status.INITIATED);
+        when(fileService.findByHash(hash)).thenReturn(Optional.empty());
+        when(valueOperations.setIfAbsent(eq("upload:inflight:" + hash), anyString(), any(Duration.class))).thenReturn(false);
+        when(valueOperations.get("upload:inflight:" + hash)).thenReturn(UPLOAD_ID);
+        when(redisTemplate.hasKey("upload:" + UPLOAD_ID + ":active")).thenReturn(true);
+
+        UploadInitResponse response = service.initialiseUpload(hash);
+
+        assertEquals(UPLOAD_ID, response.inFlightUploadId());
+        assertNotNull(response.uploadId());
+        assertNotEquals(UPLOAD_ID, response.uploadId());
+        verify(uploadStatusRepository).save(argThat(s -> hash.equals(s.getDeclaredHash())));
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("the claim of an upload that stopped sending chunks is taken over")
+    void testIdleClaim() {
+        String hash = "f".repeat(64);
+        row.setStatus(UploadStatus.Status.INITIATED);
+        when(fileService.findByHash(hash)).thenReturn(Optional.empty());
+        when(valueOperations.setIfAbsent(eq("upload:inflight:" + hash), anyString(), any(Duration.class)))
+                .thenReturn(false, true);
+        when(valueOperations.get("upload:inflight:" + hash)).thenReturn(UPLOAD_ID);
+        when(redisTemplate.hasKey("upload:" + UPLOAD_ID + ":active")).thenReturn(false);
+
+        UploadInitResponse response = service.initialiseUpload(hash);
+
+        assertNotNull(response.uploadId());
+        assertNull(response.inFlightUploadId());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("upload:inflight:" + hash)), eq(UPLOAD_ID));
+    }
+
+    @Test
+    @DisplayName("the claim of a failed upload is taken over")
+    void testAbandonedClaim() {
+        String hash = "c".repeat(64);
+        row.setStatus(UploadStatus.Status.FAILED);
+        when(fileService.findByHash(hash)).thenReturn(Optional.empty());
+        when(valueOperations.setIfAbsent(eq("upload:inflight:" + hash), anyString(), any(Duration.class)))
+                .thenReturn(false, true);
+        when(valueOperations.get("upload:inflight:" + hash)).thenReturn(UPLOAD_ID);
+
+        UploadInitResponse response = service.initialiseUpload(hash);
+
+        assertNotNull(response.uploadId());
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("upload:inflight:" + hash)), eq(UPLOAD_ID));
+        verify(uploadStatusRepository).save(argThat(s -> hash.equals(s.getDeclaredHash())));
+    }
+
+    @Test
+    @DisplayName("completing an upload whose declared content was stored meanwhile skips the merge")
+    void testCompleteDuplicate() throws Exception {
+        row.setDeclaredHash("d".repeat(64));
+        FileEntity existing = FileEntity.builder().id(9L).build();
+        when(fileService.findByHash(row.getDeclaredHash())).thenReturn(Optional.of(existing));
+
+        assertEquals(Optional.of(existing), service.completeUpload(UPLOAD_ID, "movie.mp4"));
+
+        verify(fileUploadProducer, never()).sendUploadCompleted(any(), any());
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.DUPLICATE);
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("upload:inflight:" + row.getDeclaredHash())), eq(UPLOAD_ID));
+    }
+
+    @Test
+    @DisplayName("merged bytes that do not match the declared hash fail the merge before anything is stored")
+    void testDeclaredHashMismatch() throws Exception {
+        row.setDeclaredHash("e".repeat(64));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.mergeChunksAndSaveFile(UPLOAD_ID, "notes.txt"));
+
+        assertInstanceOf(HashMismatchException.class, e.getCause());
+        verify(fileService, never()).putFile(any(), any(), any());
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.FAILED);
+        assertNull(row.getMergeStage());
+    }
+
+    @Test
+    @DisplayName("a merge of content stored meanwhile ends as DUPLICATE without failing the event")
+    void testMergeDuplicate() throws Exception {
+        ReflectionTestUtils.setField(service, "composeMergeEnabled", false);
+        when(fileService.fileExists(any())).thenReturn(true);
+
+        assertDoesNotThrow(() -> service.mergeChunksAndSaveFile(UPLOAD_ID, "notes.txt"));
+
+        verify(fileService, never()).putFile(any(), any(), any());
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.DUPLICATE);
+    }
+
+    @Test
+    @DisplayName("a merge that fails and will be retried leaves the upload PROCESSING")
+    void testRetryableFailureKeepsProcessing() throws Exception {
+        ReflectionTestUtils.setField(service, "composeMergeEnabled", false);
+        doThrow(new IOException("minio down")).when(fileService).putFile(any(), any(), any());
+
+        assertThrows(IllegalStateException.class, () -> service.mergeChunksAndSaveFile(UPLOAD_ID, "notes.txt"));
+
+        verify(uploadStatusRepository, never()).updateStatus(eq(UPLOAD_ID), any());
+        assertEquals(UploadStatus.Status.PROCESSING, row.getStatus());
+    }
+
+    @Test
+    @DisplayName("giving up on an upload fails it unless it finished meanwhile")
+    void testFailUpload() {
+        service.failUpload(UPLOAD_ID);
+        verify(uploadStatusRepository).updateStatus(UPLOAD_ID, UploadStatus.Status.FAILED);
+
+        clearInvocations(uploadStatusRepository);
+        row.setStatus(UploadStatus.Status.COMPLETED);
+        service.failUpload(UPLOAD_ID);
+        verify(uploadStatusRepository, never()).updateStatus(any(), any());
+    }
+
+    @Test
+    @DisplayName("a composed upload is stored under the flat SHA-256 of its bytes, not a hash of its chunk hashes")
+    void testComposeStoresFlatHash() throws Exception {
+        byte[] content = stubComposableChunks();
+        when(fileService.registerFile(eq("report.pdf"), any(), anyLong(), any(), eq(UPLOAD_ID + "_report.pdf"),
+                eq(FileEntity.FileCategory.FILE))).thenReturn(FileEntity.builder().id(4L).build());
+        when(fileService.getFile(4L)).thenReturn(FileEntity.builder().id(4L).category(FileEntity.FileCategory.FILE).build());
+
+        service.mergeChunksAndSaveFile(UPLOAD_ID, "report.pdf");
+
+        String flatHash = Util.computeHash(content);
+        verify(fileService).composeObject(eq(UPLOAD_ID + "_report.pdf"), any(), argThat(sources -> sources.size() == 2));
+        verify(fileService).registerFile(eq("report.pdf"), any(), eq((long) content.length), eq(flatHash),
+                eq(UPLOAD_ID + "_report.pdf"), eq(FileEntity.FileCategory.FILE));
+        verify(fileService, never()).putFile(any(), any(), any());
+        assertEquals(flatHash, row.getHash());
+    }
+
+    @Test
+    @DisplayName("content stored through compose is found by an instant upload of its SHA-256")
+    void testInstantUploadOfComposedFile() throws Exception {
+        byte[] content = stubComposableChunks();
+        FileEntity stored = FileEntity.builder().id(4L).category(FileEntity.FileCategory.FILE).build();
+        when(fileService.registerFile(eq("report.pdf"), any(), anyLong(), any(), any(), any())).thenReturn(stored);
+        when(fileService.getFile(4L)).thenReturn(stored);
+        service.mergeChunksAndSaveFile(UPLOAD_ID, "report.pdf");
+
+        ArgumentCaptor<String> storedHash = ArgumentCaptor.forClass(String.class);
+        verify(fileService).registerFile(any(), any(), anyLong(), storedHash.capture(), any(), any());
+        when(fileService.findByHash(storedHash.getValue())).thenReturn(Optional.of(stored));
+
+        UploadInitResponse response = service.initialiseUpload(Util.computeHash(content));
+
+        assertEquals(4L, response.existingFileId());
+        assertNull(response.uploadId());
+    }
+
+    // Two chunks, the first at the 5 MiB compose minimum, with their sizes in Redis
+    private byte[] stubComposableChunks() throws Exception {
+        ReflectionTestUtils.setField(service, "composeMergeEnabled", true);
+        byte[] first = new byte[5 * 1024 * 1024];
+        Arrays.fill(first, (byte) 7);
+        byte[] second = "tail".getBytes(StandardCharsets.UTF_8);
+
+        when(hashOperations.entries("upload:" + UPLOAD_ID))
+                .thenReturn(Map.of("1", UPLOAD_ID + "/chunk_1", "2", UPLOAD_ID + "/chunk_2"));
+        when(hashOperations.entries("upload:" + UPLOAD_ID + ":sizes")).thenReturn(Map.of(
+                "1", String.valueOf(first.length),
+                "2", String.valueOf(second.length)));
+        doAnswer(inv -> {
+            ChunkDownloadPipeline.ChunkConsumer consumer = inv.getArgument(3);
+            consumer.accept(0, Files.write(workDir.resolve("chunk_1.part"), first));
+            consumer.accept(1, Files.write(workDir.resolve("chunk_2.part"), second));
+            return null;
+        }).when(chunkDownloadPipeline).fetchInOrder(eq("upload-chunks"),
+                eq(List.of(UPLOAD_ID + "/chunk_1", UPLOAD_ID + "/chunk_2")), eq(UPLOAD_ID), any());
+
+        byte[] content = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, content, first.length, second.length);
+        return content;
+    }
+
+    private static Result<Item> listed(String objectName) {
+        return listed(objectName, 1024);
+    }
+
+    private static Result<Item> listed(String objectName, long size) {
+        Item item = mock(Item.class);
+        when(item.objectName()).thenReturn(objectName);
+        when(item.size()).thenReturn(size);
+        return new Result<>(item);
+    }
+}
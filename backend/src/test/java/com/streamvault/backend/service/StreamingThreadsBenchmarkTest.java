@@ -0,0 +1,173 @@
+package com.streamvault.backend.service;
+
+import com.streamvault.backend.cache.VideoSegmentCache;
+import com.streamvault.backend.config.MinioConfig;
+import com.streamvault.backend.dto.StreamedFile;
+import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.repository.FileRepository;
+import com.streamvault.backend.storage.ContentStore;
+import com.streamvault.backend.storage.FileHashIndex;
+import com.sun.net.httpserver.HttpServer;
+
+import io.minio.MinioClient;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Concurrent range reads through {@link FileService#streamFile} against a MinIO stand-in that
+ * answers every GET after a fixed delay, once on a Tomcat-sized platform pool and once on
+ * virtual threads. Keep the origin latency high enough that the run is bound by blocked threads
+ * rather than CPU. Skipped unless run explicitly:
+ * <pre>
+ * mvn test -Dtest=StreamingThreadsBenchmarkTest -Dbenchmark.threads=true \
+ *     -Dbenchmark.threads.clients=2000 -Dbenchmark.threads.origin-latency-ms=2000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.threads", matches = "true")
+class StreamingThreadsBenchmarkTest {
+
+    private static final String RANGE = "bytes=0-65535";
+    private static final int RANGE_LENGTH = 65_536;
+
+    @Test
+    @DisplayName("concurrent stream capacity on platform vs virtual threads")
+    void benchmarkConcurrentStreams() throws Exception {
+        int clients = Integer.getInteger("benchmark.threads.clients", 2_000);
+        int platformThreads = Integer.getInteger("benchmark.threads.platform-pool", 200);
+        long latencyMs = Long.getLong("benchmark.threads.origin-latency-ms", 2_000);
+
+        HttpServer origin = startOrigin(latencyMs);
+        try {
+            MinioClient minioClient = MinioClient.builder()
+                    .endpoint("http://127.0.0.1:" + origin.getAddress().getPort())
+                    .credentials("benchmark", "benchmark")
+                    .region("us-east-1")
+                    .httpClient(MinioConfig.httpClient(clients, true))
+                    .build();
+            FileService fileService = new FileService(mock(FileRepository.class), minioClient,
+                    mock(VideoSegmentCache.class), mock(ContentStore.class), mock(FileHashIndex.class));
+            ReflectionTestUtils.setField(fileService, "openRangeWindow", DataSize.ofMegabytes(4));
+
+            FileEntity file = FileEntity.builder()
+                    .id(1L)
+                    .size(100L * 1024 * 1024)
+                    .fileType("video/mp4")
+                    .bucket("files")
+                    .minioPath("movie.mp4")
+                    .storageLayout(FileEntity.StorageLayout.OBJECT)
+                    .build();
+
+            // Warm up the JIT and the connection pool
+            try (ExecutorService warmup = Executors.newVirtualThreadPerTaskExecutor()) {
+                run(warmup, fileService, file, Math.min(clients, 200));
+            }
+
+            try (ExecutorService platform = Executors.newFixedThreadPool(platformThreads)) {
+                run(platform, fileService, file, clients).report("platform (" + platformThreads + " threads)", latencyMs);
+            }
+            try (ExecutorService virtual = Executors.newVirtualThreadPerTaskExecutor()) {
+                run(virtual, fileService, file, clients).report("virtual", latencyMs);
+            }
+        } finally {
+            origin.stop(0);
+        }
+    }
+
+    private static HttpServer startOrigin(long latencyMs) throws Exception {
+        byte[] payload = new byte[RANGE_LENGTH];
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 8_192);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "video/mp4");
+            exchange.sendResponseHeaders(206, payload.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(payload);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static Result run(ExecutorService executor, FileService fileService, FileEntity file, int clients) throws Exception {
+        AtomicLong bytes = new AtomicLong();
+        List<Future<Long>> streams = new ArrayList<>(clients);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            // Measured from submission, so time spent queued for a free thread counts
+            long requested = System.nanoTime();
+            streams.add(executor.submit(() -> {
+                StreamedFile streamed = fileService.streamFile(file, RANGE);
+                CountingStream out = new CountingStream();
+                streamed.body().writeTo(out);
+                bytes.addAndGet(out.count);
+                return System.nanoTime() - requested;
+            }));
+        }
+
+        long[] latencies = new long[clients];
+        for (int i = 0; i < clients; i++) {
+            latencies[i] = streams.get(i).get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals((long) clients * RANGE_LENGTH, bytes.get());
+        return new Result(clients, elapsed, latencies);
+    }
+
+    private static class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private record Result(int clients, long elapsedNanos, long[] latencies) {
+
+        void report(String label, long latencyMs) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf("%s: %d streams, origin latency %d ms: %.1f streams/s wall=%.2f s "
+                            + "p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                    label, clients, latencyMs, clients / seconds, seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.streamvault.backend.service;
 
+import com.streamvault.backend.dto.VideoListPage;
 import com.streamvault.backend.dto.VideoProcessedRequest;
 import com.streamvault.backend.model.FileEntity;
 import com.streamvault.backend.model.VideoEntity;
 import com.streamvault.backend.repository.VideoRepository;
+import com.streamvault.backend.search.VideoIndexService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,11 +13,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,6 +30,9 @@ class VideoServiceTest {
     @Mock
     private VideoRepository videoRepository;
 
+    @Mock
+    private VideoIndexService videoIndexService;
+
     @InjectMocks
     private VideoService videoService;
 
@@ -59,16 +65,22 @@ class VideoServiceTest {
     }
 
     @Test
-    @DisplayName("listVideos returns paginated videos")
+    @DisplayName("listVideos pages by keyset after the cursor without counting")
     void testListVideos() {
         VideoEntity video = new VideoEntity();
-        Page<VideoEntity> page = new PageImpl<>(Collections.singletonList(video));
-        when(videoRepository.findAll(any(Pageable.class))).thenReturn(page);
-
-        Page<VideoEntity> result = videoService.listVideos(Pageable.unpaged());
-
-        assertEquals(1, result.getTotalElements());
-        verify(videoRepository, times(1)).findAll(any(Pageable.class));
+        video.setId(41L);
+        Slice<VideoEntity> first = new SliceImpl<>(Collections.singletonList(video), PageRequest.ofSize(1), true);
+        when(videoRepository.findByIdLessThanOrderByIdDesc(Long.MAX_VALUE, PageRequest.ofSize(1))).thenReturn(first);
+        when(videoRepository.findByReadyForStreamingAndIdLessThanOrderByIdDesc(true, 41L, PageRequest.ofSize(1)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(1), false));
+
+        VideoListPage page = videoService.listVideos(null, null, 1);
+        assertEquals(List.of(video), page.videos());
+        assertTrue(page.hasNext());
+        assertNull(videoService.listVideos(page.nextCursor(), true, 1).nextCursor());
+
+        verify(videoRepository, never()).count();
+        assertThrows(IllegalArgumentException.class, () -> videoService.listVideos("not a cursor", null, 1));
     }
 
     @Test
@@ -123,5 +135,6 @@ class VideoServiceTest {
         assertEquals(1080, saved.getHeight());
         assertEquals("thumb.jpg", saved.getThumbnailPath());
         assertTrue(saved.getReadyForStreaming());
+        verify(videoIndexService).requestReindex(1L);
     }
 }
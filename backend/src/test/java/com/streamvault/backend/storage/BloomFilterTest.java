@@ -0,0 +1,48 @@
+package com.streamvault.backend.storage;
+
+import com.streamvault.backend.util.Util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("added hashes are always found and the false-positive rate stays near the target")
+    void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put(sha256("stored-" + i));
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain(sha256("stored-" + i)));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(sha256("new-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_500, falsePositives + " false positives in 100000");
+    }
+
+    @Test
+    @DisplayName("strings that are not hex digests are hashed before use")
+    void testNonHexInput() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+        filter.put("not-a-digest");
+
+        assertTrue(filter.mightContain("not-a-digest"));
+        assertArrayEquals(filter.positions("not-a-digest"), filter.positions("not-a-digest"));
+    }
+
+    private static String sha256(String value) {
+        return Util.toHex(Util.newDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,121 @@
+package com.streamvault.backend.storage;
+
+import com.streamvault.backend.model.FileChunk;
+import com.streamvault.backend.model.FileEntity;
+import com.streamvault.backend.repository.ContentChunkRepository;
+import com.streamvault.backend.repository.FileChunkRepository;
+import com.streamvault.backend.repository.FileRepository;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import okhttp3.Headers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ContentStoreTest {
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private ContentChunkRepository contentChunkRepository;
+
+    @Mock
+    private FileChunkRepository fileChunkRepository;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @TempDir
+    private Path tempDir;
+
+    private ContentStore contentStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        contentStore = new ContentStore(minioClient, contentChunkRepository, fileChunkRepository, fileRepository,
+                true, "files", DataSize.ofKilobytes(2), DataSize.ofKilobytes(8), DataSize.ofKilobytes(32));
+    }
+
+    @Test
+    @DisplayName("chunks already stored are referenced without being uploaded again")
+    void testUploadSkipsKnownChunks() throws Exception {
+        Path file = tempDir.resolve("data.bin");
+        byte[] data = new byte[200_000];
+        new Random(5).nextBytes(data);
+        Files.write(file, data);
+        when(contentChunkRepository.existsById(anyString())).thenReturn(false);
+
+        List<ContentStore.ChunkRef> first = contentStore.upload(file);
+        int uploads = first.size();
+        verify(minioClient, times(uploads)).putObject(any(PutObjectArgs.class));
+
+        when(contentChunkRepository.existsById(anyString())).thenReturn(true);
+        List<ContentStore.ChunkRef> second = contentStore.upload(file);
+
+        assertEquals(first, second);
+        verify(minioClient, times(uploads)).putObject(any(PutObjectArgs.class));
+        assertEquals(data.length, first.stream().mapToLong(ContentStore.ChunkRef::size).sum());
+    }
+
+    @Test
+    @DisplayName("a byte range spanning several chunks is read from each of them in order")
+    void testOpenRange() throws Exception {
+        Map<String, String> chunks = Map.of("a", "0123456789", "b", "abcdefghij", "c", "ABCDEFGHIJ");
+        when(fileChunkRepository.findByFileIdOrderByPosition(1L)).thenReturn(List.of(
+                chunk(0, 0, "a"), chunk(1, 10, "b"), chunk(2, 20, "c")));
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(inv -> {
+            GetObjectArgs args = inv.getArgument(0);
+            String content = chunks.get(args.object().substring("chunks/".length()));
+            int from = args.offset().intValue();
+            int to = from + args.length().intValue();
+            return new GetObjectResponse(Headers.of(), "files", null, args.object(),
+                    new ByteArrayInputStream(content.substring(from, to).getBytes()));
+        });
+        FileEntity file = FileEntity.builder().id(1L).size(30L).storageLayout(FileEntity.StorageLayout.CHUNKED).build();
+
+        try (InputStream in = contentStore.open(file, 7, 16)) {
+            assertEquals("789abcdefghijABC", new String(in.readAllBytes()));
+        }
+        try (InputStream in = contentStore.open(file, 10, 10)) {
+            assertEquals("abcdefghij", new String(in.readAllBytes()));
+        }
+        verify(fileChunkRepository, times(1)).findByFileIdOrderByPosition(1L);
+    }
+
+    @Test
+    @DisplayName("the chunk holding an offset is found by binary search")
+    void testFirstChunkAt() {
+        List<FileChunk> manifest = List.of(chunk(0, 0, "a"), chunk(1, 10, "b"), chunk(2, 20, "c"));
+
+        assertEquals(0, ContentStore.firstChunkAt(manifest, 0));
+        assertEquals(1, ContentStore.firstChunkAt(manifest, 10));
+        assertEquals(2, ContentStore.firstChunkAt(manifest, 29));
+        assertEquals(-1, ContentStore.firstChunkAt(manifest, 30));
+    }
+
+    private static FileChunk chunk(int position, long offset, String hash) {
+        return FileChunk.builder().fileId(1L).position(position).fileOffset(offset).size(10).chunkHash(hash).build();
+    }
+}
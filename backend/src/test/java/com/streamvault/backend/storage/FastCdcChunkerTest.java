@@ -0,0 +1,91 @@
+package com.streamvault.backend.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FastCdcChunkerTest {
+
+    private static final int MIN = 2 * 1024;
+    private static final int AVG = 8 * 1024;
+    private static final int MAX = 32 * 1024;
+
+    private final FastCdcChunker chunker = new FastCdcChunker(MIN, AVG, MAX);
+
+    @Test
+    @DisplayName("chunks cover the input in order and respect the size bounds")
+    void testBounds() throws IOException {
+        byte[] data = random(1_000_000, 1);
+
+        List<byte[]> chunks = split(data);
+
+        int total = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunks.get(i).length;
+            assertTrue(length <= MAX);
+            if (i < chunks.size() - 1) {
+                assertTrue(length >= MIN);
+            }
+            assertArrayEquals(Arrays.copyOfRange(data, total, total + length), chunks.get(i));
+            total += length;
+        }
+        assertEquals(data.length, total);
+
+        double average = (double) data.length / chunks.size();
+        assertTrue(average > AVG / 2.0 && average < AVG * 2.0, "average chunk size " + average);
+    }
+
+    @Test
+    @DisplayName("an insertion near the start only changes the chunks around it")
+    void testBoundariesResynchronize() throws IOException {
+        byte[] original = random(1_000_000, 2);
+        byte[] edited = new byte[original.length + 100];
+        System.arraycopy(original, 0, edited, 0, 5_000);
+        System.arraycopy(random(100, 3), 0, edited, 5_000, 100);
+        System.arraycopy(original, 5_000, edited, 5_100, original.length - 5_000);
+
+        Set<String> before = fingerprints(split(original));
+        List<byte[]> after = split(edited);
+
+        long shared = fingerprints(after).stream().filter(before::contains).count();
+        assertTrue(shared >= after.size() - 3, shared + " of " + after.size() + " chunks shared");
+    }
+
+    @Test
+    @DisplayName("inputs shorter than the minimum size are a single chunk")
+    void testSmallInput() throws IOException {
+        assertEquals(1, split(random(100, 4)).size());
+        assertTrue(split(new byte[0]).isEmpty());
+    }
+
+    private List<byte[]> split(byte[] data) throws IOException {
+        List<byte[]> chunks = new ArrayList<>();
+        chunker.split(new ByteArrayInputStream(data),
+                (offset, buffer, length) -> chunks.add(Arrays.copyOf(buffer, length)));
+        return chunks;
+    }
+
+    private static Set<String> fingerprints(List<byte[]> chunks) {
+        Set<String> result = new HashSet<>();
+        for (byte[] chunk : chunks) {
+            result.add(Arrays.hashCode(chunk) + ":" + chunk.length);
+        }
+        return result;
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,85 @@
+package com.streamvault.backend.storage;
+
+import com.streamvault.backend.repository.FileRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class FileHashIndexTest {
+
+    private static final String KEY = "files:hash-bloom";
+    private static final String HASH = "ab".repeat(32);
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private FileHashIndex index;
+    private long markerBit;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(fileRepository.streamHashes()).thenAnswer(inv -> Stream.of(HASH));
+        index = new FileHashIndex(fileRepository, redisTemplate, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), true, "redis", 1_000, 0.01);
+        markerBit = new BloomFilter(1_000, 0.01).bitSize();
+    }
+
+    @Test
+    @DisplayName("a shared filter without the load marker is loaded in full and then marked")
+    void testLoadsUnmarkedFilter() {
+        when(valueOperations.getBit(KEY, markerBit)).thenReturn(false);
+
+        index.rebuild();
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(KEY)), any(Object[].class));
+        verify(valueOperations).setBit(KEY, markerBit, true);
+    }
+
+    @Test
+    @DisplayName("a marked shared filter is used as is")
+    void testUsesMarkedFilter() {
+        when(valueOperations.getBit(KEY, markerBit)).thenReturn(true);
+
+        index.rebuild();
+
+        verifyNoInteractions(fileRepository);
+        verify(valueOperations, never()).setBit(anyString(), anyLong(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("lookups go to Postgres once the shared filter lost its marker")
+    void testMissingMarkerFallsBack() {
+        when(valueOperations.getBit(KEY, markerBit)).thenReturn(true);
+        index.rebuild();
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), any(Object[].class))).thenReturn(-1L);
+
+        assertTrue(index.mightExist(HASH));
+
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), any(Object[].class))).thenReturn(0L);
+        assertFalse(index.mightExist(HASH));
+    }
+}
@@ -0,0 +1,72 @@
+package com.streamvault.backend.transcode;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HlsLadderServiceTest {
+
+    private HlsLadderService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new HlsLadderService(null, null, null);
+        ReflectionTestUtils.setField(service, "renditionSpecs", List.of("1080:5000", "360:800", "720:2800"));
+        service.init();
+    }
+
+    @Test
+    @DisplayName("the ladder is ordered lowest first and never upscales")
+    void ladderIsOrderedLowestFirstAndNeverUpscales() {
+        List<HlsLadderService.Rendition> renditions = service.renditionsFor(720);
+
+        assertEquals(List.of(new HlsLadderService.Rendition(360, 800), new HlsLadderService.Rendition(720, 2800)),
+                renditions);
+    }
+
+    @Test
+    @DisplayName("a source below the lowest rung gets one rendition at its own height")
+    void sourceBelowLowestRungGetsSingleRenditionAtItsOwnHeight() {
+        assertEquals(List.of(new HlsLadderService.Rendition(240, 800)), service.renditionsFor(241));
+    }
+
+    @Test
+    @DisplayName("the master playlist lists stored renditions with bandwidth, resolution and codecs")
+    void masterPlaylistListsStoredRenditionsWithBandwidthResolutionAndCodecs() {
+        String playlist = HlsLadderService.masterPlaylist(
+                List.of(new HlsLadderService.Rendition(360, 800), new HlsLadderService.Rendition(2160, 16000)),
+                3840, 2160, true);
+
+        assertEquals("""
+                #EXTM3U
+                #EXT-X-VERSION:7
+                #EXT-X-INDEPENDENT-SEGMENTS
+                #EXT-X-STREAM-INF:BANDWIDTH=984000,RESOLUTION=640x360,CODECS="avc1.4D402A,mp4a.40.2"
+                360p/index.m3u8
+                #EXT-X-STREAM-INF:BANDWIDTH=17248000,RESOLUTION=3840x2160,CODECS="avc1.4D4034,mp4a.40.2"
+                2160p/index.m3u8
+                """, playlist);
+    }
+
+    @Test
+    @DisplayName("renditions of a source without audio advertise only the video codec")
+    void masterPlaylistWithoutAudio() {
+        String playlist = HlsLadderService.masterPlaylist(
+                List.of(new HlsLadderService.Rendition(720, 2800)), null, null, false);
+
+        assertTrue(playlist.contains("#EXT-X-STREAM-INF:BANDWIDTH=3124000,CODECS=\"avc1.4D402A\"\n"), playlist);
+    }
+
+    @Test
+    @DisplayName("an invalid rendition spec fails at startup")
+    void invalidRenditionSpecFailsFast() {
+        ReflectionTestUtils.setField(service, "renditionSpecs", List.of("720p"));
+
+        assertThrows(IllegalStateException.class, service::init);
+    }
+}
@@ -0,0 +1,137 @@
+package com.streamvault.backend.transcode;
+
+import com.streamvault.backend.model.TranscodeJob;
+import com.streamvault.backend.model.UploadStatus;
+import com.streamvault.backend.repository.TranscodeJobRepository;
+import com.streamvault.backend.repository.UploadStatusRepository;
+import com.streamvault.backend.service.FfmpegService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TranscodeSchedulerTest {
+
+    private static final String INSTANCE = "node-a";
+
+    @Mock
+    private TranscodeJobRepository jobRepository;
+
+    @Mock
+    private UploadStatusRepository uploadStatusRepository;
+
+    @Mock
+    private FfmpegService ffmpegService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TranscodeScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        scheduler = new TranscodeScheduler(jobRepository, uploadStatusRepository, ffmpegService,
+                eventPublisher, new SimpleMeterRegistry(), mock(HlsLadderService.class));
+        ReflectionTestUtils.setField(scheduler, "instanceId", INSTANCE);
+        ReflectionTestUtils.setField(scheduler, "lease", Duration.ofMinutes(5));
+        when(jobRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("on restart only this instance's jobs are re-queued or failed")
+    void testRecoversOnlyOwnJobs() {
+        TranscodeJob ladder = job(1L, null, TranscodeJob.Status.RUNNING);
+        TranscodeJob lostInput = job(2L, "/tmp/missing_merged.mp4", TranscodeJob.Status.QUEUED);
+        when(jobRepository.findByStatusInAndOwnerOrderById(anyCollection(), eq(INSTANCE)))
+                .thenReturn(List.of(ladder, lostInput));
+
+        scheduler.recoverOwnJobs();
+
+        assertEquals(TranscodeJob.Status.QUEUED, ladder.getStatus());
+        assertEquals(List.of(ladder), List.copyOf(queue()));
+        assertEquals(TranscodeJob.Status.FAILED, lostInput.getStatus());
+        verify(uploadStatusRepository).updateStatus("upload-2", UploadStatus.Status.FAILED);
+        verify(jobRepository).renewLeases(eq(INSTANCE), any(), anyCollection());
+        verify(jobRepository, never()).findExpired(anyCollection(), any());
+    }
+
+    @Test
+    @DisplayName("an expired job is adopted only when this instance wins the takeover")
+    void testAdoptsExpiredJobs() {
+        TranscodeJob won = job(3L, null, TranscodeJob.Status.RUNNING);
+        won.setOwner("node-b");
+        TranscodeJob lost = job(4L, null, TranscodeJob.Status.RUNNING);
+        lost.setOwner("node-c");
+        when(jobRepository.findExpired(anyCollection(), any())).thenReturn(List.of(won, lost));
+        when(jobRepository.takeOver(eq(3L), eq(INSTANCE), any(), any(), anyCollection())).thenReturn(1);
+        when(jobRepository.takeOver(eq(4L), eq(INSTANCE), any(), any(), anyCollection())).thenReturn(0);
+
+        scheduler.maintainLeases();
+
+        assertEquals(INSTANCE, won.getOwner());
+        assertEquals(TranscodeJob.Status.QUEUED, won.getStatus());
+        assertEquals(List.of(won), List.copyOf(queue()));
+        assertEquals("node-c", lost.getOwner());
+        verify(jobRepository, never()).save(lost);
+    }
+
+    @Test
+    @DisplayName("a transcoded upload is handed off only after its job is finished, and its output is deleted after")
+    void testOutputHandedOffAfterFinish() throws Exception {
+        TranscodeJob job = job(5L, "/tmp/upload-5_merged.mp4", TranscodeJob.Status.QUEUED);
+        when(ffmpegService.probe(any())).thenReturn(new FfmpegService.ProbeResult("h264", "aac", 1280, 720, 10.0));
+        when(ffmpegService.start(any(), any(), any(), anyInt())).thenReturn(mock(Process.class));
+        Path[] handedOff = new Path[1];
+        doAnswer(inv -> {
+            TranscodeJobCompletedEvent event = inv.getArgument(0);
+            assertEquals(TranscodeJob.Status.SUCCEEDED, event.job().getStatus());
+            assertNotNull(event.job().getFinishedAt());
+            assertTrue(Files.exists(event.output()));
+            handedOff[0] = event.output();
+            return null;
+        }).when(eventPublisher).publishEvent(any(Object.class));
+
+        ReflectionTestUtils.invokeMethod(scheduler, "run", job);
+
+        verify(eventPublisher).publishEvent(any(Object.class));
+        assertFalse(Files.exists(handedOff[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private PriorityQueue<TranscodeJob> queue() {
+        return (PriorityQueue<TranscodeJob>) ReflectionTestUtils.getField(scheduler, "smallQueue");
+    }
+
+    private TranscodeJob job(Long id, String inputPath, TranscodeJob.Status status) {
+        return TranscodeJob.builder()
+                .id(id)
+                .type(inputPath == null ? TranscodeJob.Type.HLS_LADDER : TranscodeJob.Type.UPLOAD)
+                .uploadId("upload-" + id)
+                .inputPath(inputPath)
+                .sizeBytes(1024L)
+                .lane(TranscodeJob.Lane.SMALL)
+                .status(status)
+                .owner(INSTANCE)
+                .heartbeatAt(LocalDateTime.now().minusHours(1))
+                .createdAt(LocalDateTime.now().minusHours(1))
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.streamvault.backend.util;
+
+import com.streamvault.backend.dto.ByteRange;
+import com.streamvault.backend.exception.RangeNotSatisfiableException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpRangeParserTest {
+
+    private static final long SIZE = 10_000;
+    private static final long WINDOW = 1_000;
+
+    @Test
+    @DisplayName("missing or non-bytes header means the whole file")
+    void testNoRange() {
+        assertTrue(HttpRangeParser.parse(null, SIZE, WINDOW).isEmpty());
+        assertTrue(HttpRangeParser.parse("items=0-5", SIZE, WINDOW).isEmpty());
+    }
+
+    @Test
+    @DisplayName("open-ended range is capped to the window")
+    void testOpenEndedRangeCapped() {
+        assertEquals(List.of(new ByteRange(0, 999)), HttpRangeParser.parse("bytes=0-", SIZE, WINDOW));
+        assertEquals(List.of(new ByteRange(9_500, 9_999)), HttpRangeParser.parse("bytes=9500-", SIZE, WINDOW));
+    }
+
+    @Test
+    @DisplayName("explicit end is honoured and clamped to the file size")
+    void testExplicitRange() {
+        assertEquals(List.of(new ByteRange(100, 5_000)), HttpRangeParser.parse("bytes=100-5000", SIZE, WINDOW));
+        assertEquals(List.of(new ByteRange(9_000, 9_999)), HttpRangeParser.parse("bytes=9000-20000", SIZE, WINDOW));
+    }
+
+    @Test
+    @DisplayName("suffix range returns the last N bytes")
+    void testSuffixRange() {
+        assertEquals(List.of(new ByteRange(9_500, 9_999)), HttpRangeParser.parse("bytes=-500", SIZE, WINDOW));
+        assertEquals(List.of(new ByteRange(0, 9_999)), HttpRangeParser.parse("bytes=-20000", SIZE, WINDOW));
+    }
+
+    @Test
+    @DisplayName("multiple ranges are returned in request order, skipping unsatisfiable ones")
+    void testMultipleRanges() {
+        List<ByteRange> ranges = HttpRangeParser.parse("bytes=0-99, 20000-, -100", SIZE, WINDOW);
+        assertEquals(List.of(new ByteRange(0, 99), new ByteRange(9_900, 9_999)), ranges);
+    }
+
+    @Test
+    @DisplayName("malformed or unsatisfiable ranges throw RangeNotSatisfiableException")
+    void testBadRanges() {
+        assertThrows(RangeNotSatisfiableException.class, () -> HttpRangeParser.parse("bytes=10000-", SIZE, WINDOW));
+        assertThrows(RangeNotSatisfiableException.class, () -> HttpRangeParser.parse("bytes=50-10", SIZE, WINDOW));
+        assertThrows(RangeNotSatisfiableException.class, () -> HttpRangeParser.parse("bytes=abc", SIZE, WINDOW));
+        assertThrows(RangeNotSatisfiableException.class, () -> HttpRangeParser.parse("bytes=-0", SIZE, WINDOW));
+    }
+}
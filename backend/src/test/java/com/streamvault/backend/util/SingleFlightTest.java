@@ -0,0 +1,66 @@
+package com.streamvault.backend.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    @DisplayName("concurrent callers for one key share a single load")
+    void testConcurrentCallersShareLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> first = executor.submit(() -> singleFlight.load("a", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "value";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<Future<String>> waiters = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                waiters.add(executor.submit(() -> singleFlight.load("a", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            // Gives the waiters time to reach the in-flight load before it completes
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals("value", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> waiter : waiters) {
+                assertEquals("value", waiter.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("a failed load is rethrown with its own type and not remembered")
+    void testFailureRethrownAndRetried() throws Exception {
+        IOException thrown = assertThrows(IOException.class,
+                () -> singleFlight.load("b", () -> { throw new IOException("origin down"); }));
+        assertEquals("origin down", thrown.getMessage());
+
+        assertEquals("ok", singleFlight.load("b", () -> "ok"));
+    }
+}